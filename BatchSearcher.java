@@ -0,0 +1,183 @@
+import dataStructures.Aindexer;
+import processing.parsingRules.IparsingRule;
+import processing.searchStrategies.IsearchStrategy;
+import processing.searchStrategies.QueryExecutor;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Searches a file of queries against a single loaded index, so the index is read (or built) once for all of
+ * them. The queries are searched on the threads of a QueryExecutor, and their results are written in the order of the
+ * queries file, in the format TextSearcher prints them, as soon as every query before them is done.
+ * When all the queries are done a report of the throughput and the latency percentiles is printed.
+ */
+public class BatchSearcher {
+
+    /** By default the queries are searched one at a time. */
+    static final int DEFAULT_NUM_OF_THREADS = 1;
+
+    static final String ERROR_LINE = "ERROR %s: %s";
+    static final String REPORT =
+            "%d queries (%d failed) in %.3f s, %.1f queries/s%n" +
+            "latency ms: p50 %.3f, p90 %.3f, p99 %.3f, max %.3f%n";
+
+    // the most queries searched or waiting to be written, per thread
+    private static final int QUERIES_IN_FLIGHT_PER_THREAD = 4;
+    private static final double NANOS_IN_MILLI = 1e6;
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final double[] PERCENTILES = {50, 90, 99, 100};
+
+    private final IsearchStrategy searcher;
+    private final IparsingRule rule;
+    private final int numOfThreads;
+    private final int maxResults;
+
+    /** The outcome of a single query: its formatted results or error line, and the time it took. */
+    private static class Outcome {
+        final String formatted;
+        final long nanos;
+        final boolean failed;
+
+        Outcome(String formatted, long nanos, boolean failed) {
+            this.formatted = formatted;
+            this.nanos = nanos;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * constructor
+     * @param indexer       an indexer whose index() was called
+     * @param numOfThreads  the number of queries searched at once, values smaller than 1 are treated as 1.
+     * @param maxResults    the most results of a query
+     */
+    BatchSearcher(Aindexer<?> indexer, int numOfThreads, int maxResults) {
+        this.searcher = indexer.asSearchInterface();
+        this.rule = indexer.getParseRule();
+        this.numOfThreads = Math.max( 1, numOfThreads );
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Search all the queries of a file and print the report.
+     * @param queriesPath   the queries file, a query per line, blank lines are skipped.
+     * @param outputPath    the file the results are written to, null to write them to the standard output.
+     */
+    void run(String queriesPath, String outputPath) throws IOException, InterruptedException {
+
+        Writer output = outputPath == null ?
+                new OutputStreamWriter( System.out, Charset.defaultCharset() ) :
+                Files.newBufferedWriter( Paths.get( outputPath ), Charset.defaultCharset() );
+
+        ArrayDeque<Future<Outcome>> inFlight = new ArrayDeque<>();
+        int maxInFlight = this.numOfThreads * QUERIES_IN_FLIGHT_PER_THREAD;
+
+        long[] latencies = new long[16];
+        int numOfQueries = 0;
+        int numOfFailed = 0;
+
+        long start = System.nanoTime();
+
+        try (QueryExecutor executor = new QueryExecutor( this.searcher, this.numOfThreads );
+             BufferedReader queries = Files.newBufferedReader( Paths.get( queriesPath ), Charset.defaultCharset() )) {
+
+            String query;
+
+            while ( true ) {
+
+                query = queries.readLine();
+
+                // write the oldest outcome once the window is full, or all of them after the last query
+                while ( !inFlight.isEmpty() && (query == null || inFlight.size() >= maxInFlight) ) {
+
+                    Outcome outcome = getOutcome( inFlight.poll() );
+
+                    output.write( outcome.formatted );
+
+                    if ( numOfQueries == latencies.length ) {
+                        latencies = Arrays.copyOf( latencies, latencies.length * 2 );
+                    }
+                    latencies[numOfQueries++] = outcome.nanos;
+
+                    if ( outcome.failed ) { numOfFailed++; }
+                }
+
+                if ( query == null ) { break; }
+
+                String trimmed = query.trim();
+
+                if ( trimmed.isEmpty() ) { continue; }
+
+                inFlight.add( executor.submit( searcher -> this.search( searcher, trimmed ) ) );
+            }
+
+        } finally {
+            output.flush();
+            if ( outputPath != null ) { output.close(); }
+        }
+
+        double seconds = (System.nanoTime() - start) / NANOS_IN_SECOND;
+
+        printReport( Arrays.copyOf( latencies, numOfQueries ), numOfFailed, seconds );
+    }
+
+    /*
+    search and format a single query, a failed search gets an error line instead of its results.
+     */
+    private Outcome search(IsearchStrategy searcher, String query) {
+
+        long start = System.nanoTime();
+
+        String formatted;
+        boolean failed = false;
+
+        try {
+            formatted = TextSearcher.formatResults( query, searcher.search( query, this.maxResults ), this.rule );
+        } catch (Exception e) {
+            formatted = String.format( ERROR_LINE, query, e.getMessage() ) + TextSearcher.NEW_LINE;
+            failed = true;
+        }
+
+        return new Outcome( formatted, System.nanoTime() - start, failed );
+    }
+
+    /*
+    wait for the outcome of a query, search() catches the exceptions of the search itself.
+     */
+    private static Outcome getOutcome(Future<Outcome> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException( e.getCause() );
+        }
+    }
+
+    /*
+    print the throughput and the nearest rank latency percentiles.
+     */
+    private static void printReport(long[] latencies, int numOfFailed, double seconds) {
+
+        Arrays.sort( latencies );
+
+        Object[] values = new Object[4 + PERCENTILES.length];
+        values[0] = latencies.length;
+        values[1] = numOfFailed;
+        values[2] = seconds;
+        values[3] = seconds > 0 ? latencies.length / seconds : 0.0;
+
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            int rank = (int) Math.ceil( PERCENTILES[i] / 100 * latencies.length );
+            values[4 + i] = latencies.length == 0 ? 0.0 : latencies[Math.max( 0, rank - 1 )] / NANOS_IN_MILLI;
+        }
+
+        System.err.print( String.format( Locale.ROOT, REPORT, values ) );
+    }
+}
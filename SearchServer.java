@@ -0,0 +1,254 @@
+import dataStructures.Aindexer;
+import processing.searchStrategies.QueryExecutor;
+import processing.textStructure.WordResult;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A long-running search server. The corpora of one or more arguments files are indexed (or their index file
+ * is loaded) once, and queries are then answered from the resident indexes, over the standard input and
+ * output or over a socket of the local host.
+ *
+ * Usage: TextSearcher -server [-port <port>] <arguments file> [<arguments file> ...]
+ *
+ * The protocol is line based, every request is a single line:
+ *      <query>             search the corpus of the first arguments file
+ *      @<corpus> <query>   search the corpus of that name (the name of the corpus file or folder)
+ *      LIST                list the names of the corpora
+ *      QUIT                end the session
+ * A response is the results in the format TextSearcher prints them, or an ERROR line, and then an END line
+ * holding the time the server took to answer in milliseconds.
+ */
+public class SearchServer {
+
+    static final String SERVER_FLAG = "-server";
+    static final String PORT_FLAG = "-port";
+
+    static final String LIST_REQUEST = "LIST";
+    static final String QUIT_REQUEST = "QUIT";
+    static final String CORPUS_PREFIX = "@";
+    static final String READY_LINE = "READY %s";
+    static final String ERROR_LINE = "ERROR %s";
+    static final String END_LINE = "END %.3f ms";
+
+    static final String EXCEPTION_DUPLICATE_CORPUS = "more than one corpus is named %s";
+    static final String EXCEPTION_UNKNOWN_CORPUS = "no corpus is named %s";
+    static final String EXCEPTION_EMPTY_QUERY = "search of empty query.";
+    static final String USAGE = "usage: TextSearcher -server [-port <port>] <arguments file> [<arguments file> ...]";
+
+    private static final int NO_PORT = -1;
+    private static final int MAX_PORT = 0xFFFF;
+    private static final double NANOS_IN_MILLI = 1e6;
+
+    // by corpus name, in the order of the arguments files
+    private final Map<String, Aindexer<?>> indexers;
+    private final Map<String, QueryExecutor> executors;
+    private final Map<String, Integer> maxResults;
+    private final String defaultCorpus;
+
+    /**
+     * Index or load the corpora of arguments files.
+     * @param argsFiles the paths of the arguments files, their QUERY is not searched, their MAX_RESULTS is
+     *                  the most results of a query to their corpus.
+     */
+    SearchServer(List<String> argsFiles) throws Exception {
+        this.indexers = new LinkedHashMap<>();
+        this.executors = new LinkedHashMap<>();
+        this.maxResults = new LinkedHashMap<>();
+
+        for (String argsFile : argsFiles) {
+
+            TextSearcher loader = new TextSearcher();
+            loader.initIndexer( argsFile );
+
+            Aindexer<?> indexer = loader.getIndexer();
+            indexer.index();
+
+            String name = Paths.get( indexer.getCorpus().getPath() ).getFileName().toString();
+
+            if ( this.indexers.containsKey( name ) ) {
+                throw new IllegalArgumentException( String.format( EXCEPTION_DUPLICATE_CORPUS, name ) );
+            }
+
+            this.indexers.put( name, indexer );
+            this.executors.put( name, new QueryExecutor( indexer.asSearchInterface() ) );
+            this.maxResults.put( name, loader.getMaxResults() );
+        }
+
+        this.defaultCorpus = this.indexers.keySet().iterator().next();
+    }
+
+    /**
+     * Runs a server by the command line arguments (see the class documentation).
+     * @param args  the arguments of TextSearcher, starting with SERVER_FLAG.
+     * @throws IllegalArgumentException with the USAGE if the arguments are not in that format.
+     */
+    static void run(String[] args) throws Exception {
+
+        int port = NO_PORT;
+        List<String> argsFiles = new ArrayList<>();
+
+        for (int i = 1; i < args.length; i++) {
+
+            if ( args[i].equals( PORT_FLAG ) && port == NO_PORT && argsFiles.isEmpty() && i + 1 < args.length ) {
+                port = parsePort( args[++i] );
+            } else if ( args[i].startsWith( "-" ) ) {
+                throw new IllegalArgumentException( USAGE );
+            } else {
+                argsFiles.add( args[i] );
+            }
+        }
+
+        if ( argsFiles.isEmpty() ) { throw new IllegalArgumentException( USAGE ); }
+
+        SearchServer server = new SearchServer( argsFiles );
+
+        if ( port == NO_PORT ) {
+            server.serve( new BufferedReader( new InputStreamReader( System.in ) ), new PrintWriter( System.out ) );
+        } else {
+            server.listen( port );
+        }
+    }
+
+    /*
+    parse the port of PORT_FLAG, a number of a port or 0 for any free port.
+     */
+    private static int parsePort(String port) {
+
+        try {
+            int parsed = Integer.parseInt( port );
+
+            if ( parsed >= 0 && parsed <= MAX_PORT ) { return parsed; }
+
+        } catch (NumberFormatException e) {
+            // not a number, falls through to the usage
+        }
+
+        throw new IllegalArgumentException( USAGE );
+    }
+
+    /**
+     * Accept sessions on a socket of the local host until the process is stopped, every session is served on a
+     * thread of its own.
+     * @param port  the port to listen on
+     */
+    void listen(int port) throws IOException {
+
+        ExecutorService sessions = Executors.newCachedThreadPool();
+
+        try (ServerSocket serverSocket = new ServerSocket( port, 0, InetAddress.getLoopbackAddress() )) {
+
+            System.out.println( String.format( READY_LINE, serverSocket.getLocalPort() ) );
+
+            while ( true ) {
+
+                Socket socket = serverSocket.accept();
+
+                sessions.submit( () -> {
+                    try (Socket session = socket) {
+                        this.serve( new BufferedReader( new InputStreamReader( session.getInputStream() ) ),
+                                    new PrintWriter( new OutputStreamWriter( session.getOutputStream() ) ) );
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                } );
+            }
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    /**
+     * Serve a single session, until a QUIT request or the end of the input.
+     * @param requests  the request lines
+     * @param responses where the responses are written to, flushed after every response.
+     */
+    void serve(BufferedReader requests, PrintWriter responses) throws IOException {
+
+        responses.println( String.format( READY_LINE, String.join( " ", this.indexers.keySet() ) ) );
+        responses.flush();
+
+        String request;
+
+        while ( (request = requests.readLine()) != null ) {
+
+            request = request.trim();
+
+            if ( request.isEmpty() ) { continue; }
+
+            if ( request.equals( QUIT_REQUEST ) ) { break; }
+
+            responses.print( this.respond( request ) );
+            responses.flush();
+        }
+    }
+
+    /**
+     * Answer a single request.
+     * @param request   a request line
+     * @return  the whole response, ending with the END line.
+     */
+    String respond(String request) {
+
+        long start = System.nanoTime();
+
+        StringBuilder response = new StringBuilder();
+
+        try {
+            if ( request.equals( LIST_REQUEST ) ) {
+
+                for (String name : this.indexers.keySet()) { response.append( name ).append( TextSearcher.NEW_LINE ); }
+
+            } else {
+                String name = this.defaultCorpus;
+                String query = request;
+
+                if ( request.startsWith( CORPUS_PREFIX ) ) {
+                    int nameEnd = request.indexOf( ' ' );
+
+                    name = request.substring( CORPUS_PREFIX.length(), nameEnd < 0 ? request.length() : nameEnd );
+                    query = nameEnd < 0 ? TextSearcher.EMPTY_STRING : request.substring( nameEnd + 1 ).trim();
+                }
+
+                response.append( this.search( name, query ) );
+            }
+
+        } catch (ExecutionException e) {
+            response.append( String.format( ERROR_LINE, e.getCause().getMessage() ) ).append( TextSearcher.NEW_LINE );
+        } catch (Exception e) {
+            response.append( String.format( ERROR_LINE, e.getMessage() ) ).append( TextSearcher.NEW_LINE );
+        }
+
+        double latency = (System.nanoTime() - start) / NANOS_IN_MILLI;
+
+        response.append( String.format( Locale.ROOT, END_LINE, latency ) ).append( TextSearcher.NEW_LINE );
+
+        return response.toString();
+    }
+
+    /*
+    search a query in a corpus by its name and format the results.
+     */
+    private String search(String name, String query) throws Exception {
+
+        QueryExecutor executor = this.executors.get( name );
+
+        if ( executor == null ) {
+            throw new IllegalArgumentException( String.format( EXCEPTION_UNKNOWN_CORPUS, name ) );
+        }
+
+        if ( query.isEmpty() ) { throw new IllegalArgumentException( EXCEPTION_EMPTY_QUERY ); }
+
+        List<? extends WordResult> results = executor.submit( query, this.maxResults.get( name ) ).get();
+
+        return TextSearcher.formatResults( query, results, this.indexers.get( name ).getParseRule() );
+    }
+}
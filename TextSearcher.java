@@ -2,13 +2,17 @@ import dataStructures.Aindexer;
 import dataStructures.IndexerFactory;
 import processing.parsingRules.IparsingRule;
 import processing.searchStrategies.IsearchStrategy;
+import processing.searchStrategies.Matching;
+import processing.searchStrategies.Ranking;
 import processing.textStructure.Corpus;
 import processing.textStructure.WordResult;
+import utils.ChecksumType;
 import utils.MatchesNotFoundException;
 
 import java.io.File;
 import java.io.IOException;
 
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Scanner;
 
@@ -19,11 +23,14 @@ import java.util.Scanner;
 public class TextSearcher {
 
 	static final String EMPTY_STRING = "";
+	static final String NEW_LINE = System.lineSeparator();
 
     static final String EXCEPTION_MSG_WRONG_TOKEN =
             "Expected %s token received %s ";
     static final String EXCEPTION_INCORRECT_NUM_OF_ARGS =
             " incorrect number of arguments, should be only one ";
+    static final String EXCEPTION_MSG_WRONG_OPTIONAL_TOKEN =
+            "Expected one of %s tokens received %s ";
 
     static final String TITLE_WHEN_PRINTING_RESULTS =
             "The top %d results for query \"%s\" are:";
@@ -32,13 +39,31 @@ public class TextSearcher {
     static final String ENTRY_SEPERATOR = "=".repeat( 256 );
 
     /** The arguments file's pattern is IndexerTypeIdentifier \n requested IndexerTypeIdentifier
-     *          used by initIndexer()   */
-    enum IndexerTypeIdentifier {CORPUS, INDEXER, PARSE_RULE, QUERY}
-
-    private Aindexer indexer;
+     *          used by initIndexer(). CORPUS, INDEXER and PARSE_RULE come first in this order, the optional
+     *          ones follow in any order:
+     *          QUERY       the query to search
+     *          CHECKSUM    the ChecksumType the corpus files are fingerprinted with
+     *          QUERIES     a file of queries, one per line, searched by a BatchSearcher instead of the QUERY
+     *          OUTPUT      the file the results of the QUERIES are written to, instead of the standard output
+     *          THREADS     the number of QUERIES searched at once
+     *          MAX_RESULTS the most results of a query, IsearchStrategy.DEFAULT_MAX_RESULTS by default
+     *          RANKING     the Ranking of the results, for the indexers that support more than one
+     *          MATCHING    the Matching of the query words, for the indexers that support more than one */
+    enum IndexerTypeIdentifier {CORPUS, INDEXER, PARSE_RULE, QUERY, CHECKSUM, QUERIES, OUTPUT, THREADS, MAX_RESULTS,
+                                RANKING, MATCHING}
+
+    private static final EnumSet<IndexerTypeIdentifier> OPTIONAL_IDENTIFIERS =
+            EnumSet.range( IndexerTypeIdentifier.QUERY, IndexerTypeIdentifier.MATCHING );
+
+    private Aindexer<?> indexer;
     private String query;
+    private String queriesPath;
+    private String outputPath;
+    private int numOfThreads = BatchSearcher.DEFAULT_NUM_OF_THREADS;
+    private int maxResults = IsearchStrategy.DEFAULT_MAX_RESULTS;
 
-    private void initIndexer(String filePath) throws IOException {
+    /** Reads an arguments file and creates the indexer it describes, used by run() and by the SearchServer. */
+    void initIndexer(String filePath) throws IOException {
 
         Scanner argsFile = new Scanner(new File ( filePath ) );
 
@@ -46,14 +71,65 @@ public class TextSearcher {
         String indexerName = getArgumentName( argsFile, IndexerTypeIdentifier.INDEXER );
         String parserName = getArgumentName( argsFile, IndexerTypeIdentifier.PARSE_RULE );
 
+        Corpus corpus = new Corpus(corpusPath, parserName);
+        Ranking ranking = null;
+        Matching matching = null;
+
         // optional
-        if ( argsFile.hasNextLine() ){
-            this.query = getArgumentName( argsFile, IndexerTypeIdentifier.QUERY);
+        while ( argsFile.hasNextLine() ){
+
+            String receivedToken = argsFile.nextLine().trim();
+
+            if ( receivedToken.isEmpty() ) { continue; }
+
+            String value = argsFile.nextLine().trim();
+
+            switch ( getOptionalIdentifier( receivedToken ) ) {
+                case QUERY:
+                    this.query = value;
+                    break;
+                case CHECKSUM:
+                    corpus.setChecksumType( ChecksumType.valueOf( value ) );
+                    break;
+                case QUERIES:
+                    this.queriesPath = value;
+                    break;
+                case OUTPUT:
+                    this.outputPath = value;
+                    break;
+                case THREADS:
+                    this.numOfThreads = Integer.parseInt( value );
+                    break;
+                case MAX_RESULTS:
+                    this.maxResults = Integer.parseInt( value );
+                    break;
+                case RANKING:
+                    ranking = Ranking.valueOf( value );
+                    break;
+                case MATCHING:
+                    matching = Matching.valueOf( value );
+                    break;
+            }
         }
-        this.indexer = IndexerFactory.getIndexer( new Corpus(corpusPath, parserName), indexerName );
+        this.indexer = IndexerFactory.getIndexer( corpus, indexerName );
+
+        if ( ranking != null ) { this.indexer.setRanking( ranking ); }
+
+        if ( matching != null ) { this.indexer.setMatching( matching ); }
 
     }
 
+    /** A helper of initIndexer, gets the identifier of an optional argument. */
+    private IndexerTypeIdentifier getOptionalIdentifier( String receivedToken ) throws IllegalArgumentException {
+
+        for (IndexerTypeIdentifier identifier : OPTIONAL_IDENTIFIERS) {
+            if ( identifier.name().equals( receivedToken ) ) { return identifier; }
+        }
+
+        throw new IllegalArgumentException(String.format(EXCEPTION_MSG_WRONG_OPTIONAL_TOKEN,
+                                                         OPTIONAL_IDENTIFIERS, receivedToken));
+    }
+
     /** A helper of initIndexer, parses the arguments. the first line is the type the second the what
      *      we probably should have used Regex to get some more practice */
     private String getArgumentName( Scanner arguments, IndexerTypeIdentifier expectedIdentifier) throws IllegalArgumentException {
@@ -77,28 +153,45 @@ public class TextSearcher {
         // init the search DS
         this.indexer.index();
 
-        if ( this.query != null && this.query != EMPTY_STRING ){
+        if ( this.queriesPath != null ){
+
+            new BatchSearcher( this.indexer, this.numOfThreads, this.maxResults ).run( this.queriesPath, this.outputPath );
+
+        } else if ( this.query != null && this.query != EMPTY_STRING ){
 
             // gets the searcher of the Indexed DS
             IsearchStrategy searcher = this.indexer.asSearchInterface();
 
             // search for wanted query and return a list of the results
-            List<? extends WordResult> results = searcher.search(this.query);
+            List<? extends WordResult> results = searcher.search(this.query, this.maxResults);
 
-            System.out.println(String.format( TITLE_WHEN_PRINTING_RESULTS, results.size(), this.query));
+            System.out.print( formatResults( this.query, results, this.indexer.getParseRule() ) );
 
-            IparsingRule rule = this.indexer.getParseRule();
+        } else {throw new MatchesNotFoundException ("search of empty query."); }
 
+    }
 
+    /** The getter of the indexer created by initIndexer() */
+    Aindexer<?> getIndexer() { return this.indexer; }
 
-            for (WordResult result : results) {
-                System.out.println(ENTRY_SEPERATOR);
-                rule.printResult( result ); }
+    /** The getter of the most results of a query, read by initIndexer() */
+    int getMaxResults() { return this.maxResults; }
 
+    /** Formats the results of a query the way they are printed: a title, then every result after a separator
+     * line. Used by run() and by the SearchServer. */
+    static String formatResults( String query, List<? extends WordResult> results, IparsingRule rule )
+            throws IOException {
 
+        StringBuilder formatted = new StringBuilder();
 
-        } else {throw new MatchesNotFoundException ("search of empty query."); }
+        formatted.append(String.format( TITLE_WHEN_PRINTING_RESULTS, results.size(), query)).append(NEW_LINE);
+
+        for (WordResult result : results) {
+            formatted.append(ENTRY_SEPERATOR).append(NEW_LINE);
+            formatted.append(rule.formatResult( result )).append(NEW_LINE);
+        }
 
+        return formatted.toString();
     }
 
 
@@ -115,11 +208,19 @@ public class TextSearcher {
 
     /**
      * Main method. Reads and parses a command file and if a query exists, prints the results.
+     * With SearchServer.SERVER_FLAG as the first argument runs a SearchServer instead.
      * @param args
      */
     public static void main(String[] args) {
 
-        if ( args != null && ( args.length == 1 ) ){
+        if ( args != null && args.length > 0 && args[0].equals( SearchServer.SERVER_FLAG ) ){
+
+            try {
+                SearchServer.run( args );
+            } catch (Exception e) {
+            	exitGracefully(e.getMessage()); }
+        }
+        else if ( args != null && ( args.length == 1 ) ){
 
             TextSearcher search = new TextSearcher();
 
@@ -2,12 +2,23 @@ package dataStructures;
 
 import processing.parsingRules.IparsingRule;
 import processing.searchStrategies.IsearchStrategy;
+import processing.searchStrategies.Matching;
+import processing.searchStrategies.Ranking;
 import processing.textStructure.Corpus;
 import utils.MatchesNotFoundException;
 import utils.WrongMD5ChecksumException;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The abstract class describing the necessary methods and common implementations of all indexing data
@@ -18,8 +29,15 @@ import java.io.IOException;
 public abstract class Aindexer<T extends IsearchStrategy> {
 	public static final long serialVersionUID = 1L;
 
+	public static final String RANKING_NOT_SUPPORTED_MSG = "%s ranking is not supported by this indexer";
+	public static final String MATCHING_NOT_SUPPORTED_MSG = "%s matching is not supported by this indexer";
 
-	public static enum IndexTypes {DICT, NAIVE, NAIVE_RK, SUFFIX_TREE}
+	private static final String NEW_CACHE_FILE_INFIX = ".new";
+	private static final String DOT = ".";
+	private static final String UNDER_SCORE = "_";
+
+
+	public static enum IndexTypes {DICT, NAIVE, NAIVE_RK, SUFFIX_TREE, SUFFIX_ARRAY, FM_INDEX}
     IndexTypes dataStructType;
     protected Corpus origin;
 
@@ -52,6 +70,26 @@ public abstract class Aindexer<T extends IsearchStrategy> {
     	
     }
 
+	/**
+	 * Set the ranking of the results of the search interface. Indexers rank by their own single order unless
+	 * they override this.
+	 * @param ranking   the ranking of the results
+	 * @throws IllegalArgumentException if the indexer does not support the ranking.
+	 */
+	public void setRanking(Ranking ranking) {
+		throw new IllegalArgumentException ( String.format ( RANKING_NOT_SUPPORTED_MSG, ranking ) );
+	}
+
+	/**
+	 * Set the blocks the search interface matches a query in. Indexers match every query word unless they
+	 * override this.
+	 * @param matching  the matching of the query words
+	 * @throws IllegalArgumentException if the indexer does not support the matching.
+	 */
+	public void setMatching(Matching matching) {
+		throw new IllegalArgumentException ( String.format ( MATCHING_NOT_SUPPORTED_MSG, matching ) );
+	}
+
 	/**
 	 * get the backing search interface.
 	 * @return  The search interface implementation used by this indexer.
@@ -77,11 +115,85 @@ public abstract class Aindexer<T extends IsearchStrategy> {
 	 */
 	protected String getIndexedPath() { return this.origin.getPath (); }
 
+	/**
+	 * getter for the cache file of an index of the corpus: < IndexerType >_< ParseRule >_< CorpusName >.cache, in
+	 * the corpus directory, or next to the corpus if it is a single file.
+	 * @param type  the type of the index
+	 * @return the cache file, which may not exist.
+	 */
+	protected File getCacheFile(IndexTypes type) {
+
+		File cacheDir = new File ( this.getIndexedPath () );
+
+		if (!cacheDir.isDirectory ()) { cacheDir = cacheDir.getParentFile (); }
+
+		String corpusName = Paths.get ( this.getIndexedPath () ).getFileName ().toString ();
+
+		if (corpusName.lastIndexOf ( DOT ) > 0) { corpusName = corpusName.substring ( 0, corpusName.lastIndexOf ( DOT ) ); }
+
+		return new File ( cacheDir, type.name () + UNDER_SCORE + this.getParserName () + UNDER_SCORE + corpusName +
+									Corpus.INDEX_FILE_SUFFIX );
+	}
+
+	/**
+	 * getter for the simple class name of the parsing rule, which names the cache file and is kept in it.
+	 * @return the name of the parsing rule of the corpus
+	 */
+	protected String getParserName() { return this.origin.getParsingRule ().getClass ().getSimpleName (); }
+
 	/**
 	 * Write the indernal index into file.
 	 */
 	protected abstract void writeIndexFile();
 
+	/**
+	 * Writes the content of a cache file to a channel.
+	 */
+	protected interface CacheWriter {
+		void writeTo(FileChannel channel) throws IOException;
+	}
+
+	/**
+	 * Replace a cache file without changing it in place: the content is written to a new file in the same
+	 * directory, which is then renamed over the cache file. Other runs may have the old file mapped, and a
+	 * mapped file that is truncated faults on access, while a renamed one stays valid until it is unmapped.
+	 * The new file ends with the cache file suffix, so it is never taken for an entry of the corpus. It is created
+	 * like the cache file would be, with the default permissions of the process, so other users that share the
+	 * corpus can read it as before.
+	 * @param path      the path of the cache file
+	 * @param writer    writes the content of the file
+	 * @throws IOException if the file could not be written, the cache file is then left as it was.
+	 */
+	protected static void replaceCacheFile(Path path, CacheWriter writer) throws IOException {
+
+		Path newFile;
+		FileChannel channel;
+
+		// a name no other run is writing to, taken by creating the file
+		while (true) {
+			newFile = path.resolveSibling ( path.getFileName () + NEW_CACHE_FILE_INFIX +
+											Long.toHexString ( ThreadLocalRandom.current ().nextLong () ) +
+											Corpus.INDEX_FILE_SUFFIX );
+			try {
+				channel = FileChannel.open ( newFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE );
+				break;
+			} catch (FileAlreadyExistsException e) {
+				// taken, try another name
+			}
+		}
+
+		try {
+			try (FileChannel newChannel = channel) {
+				writer.writeTo ( newChannel );
+			}
+
+			Files.move ( newFile, path, StandardCopyOption.ATOMIC_MOVE );
+
+		} finally {
+			Files.deleteIfExists ( newFile );
+		}
+	}
+
 
 
 	/**
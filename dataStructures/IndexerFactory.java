@@ -3,6 +3,9 @@ package dataStructures;
 import dataStructures.dictionary.DictionaryIndexer;
 import dataStructures.naive.NaiveIndexer;
 import dataStructures.naive.NaiveIndexerRK;
+import dataStructures.suffixarray.FmIndexer;
+import dataStructures.suffixarray.SuffixArrayIndexer;
+import dataStructures.suffixtree.SuffixTreeIndexer;
 import processing.textStructure.Corpus;
 
 import static dataStructures.Aindexer.*;
@@ -44,6 +47,18 @@ public class IndexerFactory {
 				newIndexer = new DictionaryIndexer (corpus);
 				break;
 
+			case SUFFIX_TREE:
+				newIndexer = new SuffixTreeIndexer (corpus);
+				break;
+
+			case SUFFIX_ARRAY:
+				newIndexer = new SuffixArrayIndexer (corpus);
+				break;
+
+			case FM_INDEX:
+				newIndexer = new FmIndexer (corpus);
+				break;
+
 			default:
 				throw new IllegalArgumentException( INDEXER_NOT_ADDED_TO_FACTORY_MSG);
 
@@ -0,0 +1,645 @@
+package dataStructures.dictionary;
+
+import processing.textStructure.Block;
+import processing.textStructure.Corpus;
+import processing.textStructure.Entry;
+import processing.textStructure.Fingerprint;
+import utils.CacheFiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The read-only dictionary index of a corpus, laid out in the binary index file format and queried in place.
+ * A freshly built index lives in a heap buffer, an index read from a file lives in a memory mapped buffer,
+ * either way nothing is deserialized: terms are looked up, postings are decoded and blocks are created
+ * straight from the buffer, and only when they are needed. Only the header, the entries and the metadata lists
+ * are read up front, and the layout of the sections is checked against the size of the buffer.
+ *
+ * The file is a header followed by sections, all numbers are big-endian:
+ *
+ * header   - MAGIC, VERSION, index type, parser name, corpus checksum, the counts of entries, metadata
+ *            lists, blocks and terms, the length of the term hash table, the offset of every section
+ *            (offsets are relative to the end of the header) and the average length of a block.
+ * entries  - for every entry its file path relative to the corpus path, the checksum, size, modification time
+ *            and file key of its file, and its first block id.
+ * metadata - (numOfMetadata + 1) list offsets, then the distinct metadata lists of the blocks.
+ * blocks   - a fixed size record per block id: entry number, start index, end index, metadata list number and
+ *            length (the number of indexed words in the block).
+ * terms    - (numOfTerms + 1) term starts, numOfTerms term hashes, the term hash table, then the term bytes.
+ * postings - (numOfTerms + 1) postings starts, numOfTerms occurrence counts, numOfTerms document frequencies
+ *            (the number of blocks a term occurs in), then the postings of every term: its skip entries
+ *            (see PostingsCursor) followed by its encoded occurrences.
+ *
+ * The block lengths, document frequencies and average block length are the collection statistics of BM25
+ * ranking, they are computed once when the index is built.
+ *
+ * Strings are an int length followed by UTF-8 bytes.
+ *
+ * An index is safe to query from many threads at once: the buffer is only read by absolute index, and a block
+ * is created once even when several threads ask for it together.
+ */
+public class DictionaryIndex {
+
+	/** "TSDX" */
+	public static final int MAGIC = 0x54534458;
+	public static final int VERSION = 6;
+
+	private static final int INT_BYTES = Integer.BYTES;
+	private static final int BLOCK_RECORD_BYTES = 3 * Integer.BYTES + 2 * Long.BYTES;
+	private static final int BLOCK_START_FIELD = Integer.BYTES;
+	private static final int BLOCK_END_FIELD = Integer.BYTES + Long.BYTES;
+	private static final int BLOCK_METADATA_FIELD = Integer.BYTES + 2 * Long.BYTES;
+	private static final int BLOCK_LENGTH_FIELD = 2 * Integer.BYTES + 2 * Long.BYTES;
+	private static final int NO_BLOCK = -1;
+	// the most a heap buffer holds
+	private static final long MAX_INDEX_BYTES = Integer.MAX_VALUE - 8;
+	private static final String TOO_LARGE_MSG = "the corpus is too large for this index";
+	private static final int NUM_OF_COUNTS = 5;
+	private static final int NUM_OF_SECTIONS = 11;
+	// three empty strings, two longs and an int
+	private static final int MIN_ENTRY_BYTES = 4 * Integer.BYTES + 2 * Long.BYTES;
+
+	private final ByteBuffer buffer;
+
+	private final String indexType;
+	private final String parserName;
+	private final String checksum;
+
+	private final int numOfEntries;
+	private final int numOfMetadata;
+	private final int numOfBlocks;
+	private final int numOfTerms;
+	private final int slotsLength;
+	private final double averageBlockLength;
+
+	// absolute positions of the sections in the buffer
+	private final int entriesStart;
+	private final int metadataStart;
+	private final int blocksStart;
+	private final int termStartsStart;
+	private final int termHashesStart;
+	private final int slotsStart;
+	private final int termPoolStart;
+	private final int postingsStartsStart;
+	private final int countsStart;
+	private final int frequenciesStart;
+	private final int postingsPoolStart;
+
+	// read with the header
+	private final List<List<String>> metadata;
+	private final String[] entryPaths;
+	private final Fingerprint[] entryFingerprints;
+	private final int[] entryFirstBlocks;
+
+	// created on demand
+	private final AtomicReferenceArray<Block> blocks;
+	private volatile List<Entry> entries;
+
+	/**
+	 * Read the header, the entries and the metadata of an index and wrap it, the buffer is not copied.
+	 * @param buffer - a buffer holding a whole index file, positioned at its beginning.
+	 * @throws IOException if the buffer does not hold an index of the supported version, or if the index does
+	 * not fit in the buffer.
+	 */
+	public DictionaryIndex(ByteBuffer buffer) throws IOException {
+
+		this.buffer = buffer.duplicate ();
+
+		int position = this.buffer.position ();
+
+		if (this.buffer.remaining () < 2 * INT_BYTES || this.buffer.getInt ( position ) != MAGIC ||
+			this.buffer.getInt ( position + INT_BYTES ) != VERSION) {
+			throw new IOException ( "not a supported index file" );
+		}
+		position += 2 * INT_BYTES;
+
+		this.indexType = CacheFiles.readString ( this.buffer, position );
+		position += CacheFiles.stringSize ( this.indexType );
+		this.parserName = CacheFiles.readString ( this.buffer, position );
+		position += CacheFiles.stringSize ( this.parserName );
+		this.checksum = CacheFiles.readString ( this.buffer, position );
+		position += CacheFiles.stringSize ( this.checksum );
+
+		int[] header = new int[NUM_OF_COUNTS + NUM_OF_SECTIONS];
+
+		CacheFiles.checkSection ( this.buffer, position, header.length * INT_BYTES + Double.BYTES );
+		for (int i = 0; i < header.length; i++, position += INT_BYTES) { header[i] = this.buffer.getInt ( position ); }
+
+		this.averageBlockLength = this.buffer.getDouble ( position );
+		position += Double.BYTES;
+
+		// section offsets are relative to the end of the header
+		this.numOfEntries = header[0];
+		this.numOfMetadata = header[1];
+		this.numOfBlocks = header[2];
+		this.numOfTerms = header[3];
+		this.slotsLength = header[4];
+		this.entriesStart = position + header[5];
+		this.metadataStart = position + header[6];
+		this.blocksStart = position + header[7];
+		this.termStartsStart = position + header[8];
+		this.termHashesStart = position + header[9];
+		this.slotsStart = position + header[10];
+		this.termPoolStart = position + header[11];
+		this.postingsStartsStart = position + header[12];
+		this.countsStart = position + header[13];
+		this.frequenciesStart = position + header[14];
+		this.postingsPoolStart = position + header[15];
+
+		CacheFiles.checkCounts ( this.numOfEntries, this.numOfMetadata, this.numOfBlocks, this.numOfTerms );
+
+		// the term hash table always has an empty slot
+		if (this.slotsLength <= this.numOfTerms || Integer.bitCount ( this.slotsLength ) != 1) {
+			throw new IOException ( CacheFiles.CORRUPT_FILE_MSG );
+		}
+
+		long[] starts = new long[NUM_OF_SECTIONS];
+		for (int i = 0; i < starts.length; i++) { starts[i] = position + (long) header[NUM_OF_COUNTS + i]; }
+
+		CacheFiles.checkSections ( this.buffer, position, starts, new long[] {
+				(long) this.numOfEntries * MIN_ENTRY_BYTES,
+				(this.numOfMetadata + 1L) * INT_BYTES,
+				(long) this.numOfBlocks * BLOCK_RECORD_BYTES,
+				(this.numOfTerms + 1L) * INT_BYTES,
+				(long) this.numOfTerms * INT_BYTES,
+				(long) this.slotsLength * INT_BYTES,
+				0,
+				(this.numOfTerms + 1L) * INT_BYTES,
+				(long) this.numOfTerms * INT_BYTES,
+				(long) this.numOfTerms * INT_BYTES,
+				0 } );
+
+		this.entryPaths = new String[this.numOfEntries];
+		this.entryFingerprints = new Fingerprint[this.numOfEntries];
+		this.entryFirstBlocks = new int[this.numOfEntries + 1];
+		this.readEntries ();
+
+		this.metadata = this.readMetadata ();
+		this.checkBlocks ();
+
+		this.blocks = new AtomicReferenceArray<> ( this.numOfBlocks );
+	}
+
+	/**
+	 * Lay out a freshly built index in a heap buffer.
+	 * @param indexType         the name of the index type
+	 * @param parserName        the name of the parsing rule the corpus was parsed with
+	 * @param checksum          the checksum of the corpus
+	 * @param corpus            the corpus
+	 * @param entryBlocks       the blocks of every entry of the corpus, in iteration order. The blocks of all
+	 *                          entries one after the other are the block ids of the postings.
+	 * @param entryFingerprints the fingerprint of every entry of the corpus, in iteration order.
+	 * @param postings          the postings of the corpus
+	 * @return the index, bindEntries() should be called before blocks are requested from it.
+	 * @throws IOException if the index would not fit in a buffer.
+	 */
+	public static DictionaryIndex build(String indexType, String parserName, String checksum, Corpus corpus,
+										List<List<Block>> entryBlocks, List<Fingerprint> entryFingerprints,
+										PostingsTable postings) throws IOException {
+
+		ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream ();
+		DataOutputStream body = new DataOutputStream ( bodyBytes );
+
+		List<Entry> entries = new ArrayList<> ();
+		List<Block> blocks = new ArrayList<> ();
+		List<Integer> blockEntries = new ArrayList<> ();
+
+		for (Entry entry : corpus) { entries.add ( entry ); }
+
+		int[] firstBlocks = new int[entries.size ()];
+
+		for (int entryNumber = 0; entryNumber < entries.size (); entryNumber++) {
+
+			firstBlocks[entryNumber] = blocks.size ();
+
+			for (Block block : entryBlocks.get ( entryNumber )) {
+				blocks.add ( block );
+				blockEntries.add ( entryNumber );
+			}
+		}
+
+		int[] offsets = new int[NUM_OF_SECTIONS];
+
+		// entries
+		offsets[0] = body.size ();
+		for (int entryNumber = 0; entryNumber < entries.size (); entryNumber++) {
+			CacheFiles.writeString ( body, CacheFiles.relativePath ( corpus, entries.get ( entryNumber ) ) );
+			Fingerprint fingerprint = entryFingerprints.get ( entryNumber );
+			CacheFiles.writeString ( body, fingerprint.getChecksum () );
+			body.writeLong ( fingerprint.getSize () );
+			body.writeLong ( fingerprint.getLastModified () );
+			CacheFiles.writeString ( body, fingerprint.getFileKey () );
+			body.writeInt ( firstBlocks[entryNumber] );
+		}
+
+		// metadata, the parsing rules give all the blocks of an entry the same metadata
+		Map<List<String>, Integer> metadataIds = new HashMap<> ();
+		List<List<String>> distinctMetadata = new ArrayList<> ();
+		int[] blockMetadata = new int[blocks.size ()];
+
+		for (int blockId = 0; blockId < blocks.size (); blockId++) {
+
+			List<String> blockMetadataList = blocks.get ( blockId ).getMetadata ();
+
+			Integer metadataId = metadataIds.get ( blockMetadataList );
+
+			if (metadataId == null) {
+				metadataId = distinctMetadata.size ();
+				metadataIds.put ( blockMetadataList, metadataId );
+				distinctMetadata.add ( blockMetadataList );
+			}
+			blockMetadata[blockId] = metadataId;
+		}
+
+		offsets[1] = body.size ();
+		int listOffset = 0;
+		for (List<String> metadataList : distinctMetadata) {
+			body.writeInt ( listOffset );
+			listOffset += INT_BYTES;
+			for (String metadataString : metadataList) { listOffset += CacheFiles.stringSize ( metadataString ); }
+		}
+		body.writeInt ( listOffset );
+
+		for (List<String> metadataList : distinctMetadata) {
+			body.writeInt ( metadataList.size () );
+			for (String metadataString : metadataList) { CacheFiles.writeString ( body, metadataString ); }
+		}
+
+		body.flush ();
+
+		// the rest of the sections are written straight to the buffer, once its size is known to fit
+		TermDictionary terms = postings.getTerms ();
+		int numOfTerms = terms.numOfTerms ();
+
+		long headerBytes = 2 * INT_BYTES + CacheFiles.stringSize ( indexType ) + CacheFiles.stringSize ( parserName ) +
+						   CacheFiles.stringSize ( checksum ) + (NUM_OF_COUNTS + NUM_OF_SECTIONS) * INT_BYTES +
+						   Double.BYTES;
+		long termsStart = body.size () + (long) blocks.size () * BLOCK_RECORD_BYTES;
+		long postingsStart = termsStart + terms.bytes ();
+		long fileBytes = headerBytes + postingsStart + postings.bytes ();
+
+		if (fileBytes > MAX_INDEX_BYTES) { throw new IOException ( TOO_LARGE_MSG ); }
+
+		offsets[2] = body.size ();
+		offsets[3] = (int) termsStart;
+		offsets[4] = offsets[3] + (numOfTerms + 1) * INT_BYTES;
+		offsets[5] = offsets[4] + numOfTerms * INT_BYTES;
+		offsets[6] = offsets[5] + terms.slotsLength () * INT_BYTES;
+		offsets[7] = (int) postingsStart;
+		offsets[8] = offsets[7] + (numOfTerms + 1) * INT_BYTES;
+		offsets[9] = offsets[8] + numOfTerms * INT_BYTES;
+		offsets[10] = offsets[9] + numOfTerms * INT_BYTES;
+
+		long sumOfLengths = 0;
+		for (int blockId = 0; blockId < blocks.size (); blockId++) { sumOfLengths += postings.blockLength ( blockId ); }
+
+		ByteBuffer fileBuffer = ByteBuffer.allocate ( (int) fileBytes );
+		DataOutputStream file = CacheFiles.bufferStream ( fileBuffer );
+
+		file.writeInt ( MAGIC );
+		file.writeInt ( VERSION );
+		CacheFiles.writeString ( file, indexType );
+		CacheFiles.writeString ( file, parserName );
+		CacheFiles.writeString ( file, checksum );
+		file.writeInt ( entries.size () );
+		file.writeInt ( distinctMetadata.size () );
+		file.writeInt ( blocks.size () );
+		file.writeInt ( numOfTerms );
+		file.writeInt ( terms.slotsLength () );
+		for (int offset : offsets) { file.writeInt ( offset ); }
+		file.writeDouble ( blocks.isEmpty () ? 0 : (double) sumOfLengths / blocks.size () );
+
+		// entries and metadata
+		bodyBytes.writeTo ( file );
+
+		// blocks
+		for (int blockId = 0; blockId < blocks.size (); blockId++) {
+			Block block = blocks.get ( blockId );
+			file.writeInt ( blockEntries.get ( blockId ) );
+			file.writeLong ( block.getStartIndex () );
+			file.writeLong ( block.getEndIndex () );
+			file.writeInt ( blockMetadata[blockId] );
+			file.writeInt ( postings.blockLength ( blockId ) );
+		}
+
+		terms.writeTo ( file );
+		postings.writeTo ( file );
+		file.flush ();
+
+		fileBuffer.rewind ();
+
+		return new DictionaryIndex ( fileBuffer );
+	}
+
+	/**
+	 * Write the whole index to a file channel.
+	 * @param channel - a channel open for writing, positioned where the index should start.
+	 */
+	public void writeTo(FileChannel channel) throws IOException {
+		ByteBuffer toWrite = this.buffer.duplicate ();
+		toWrite.rewind ();
+
+		while (toWrite.hasRemaining ()) { channel.write ( toWrite ); }
+	}
+
+	/**
+	 * Bind the index to the entries of a corpus, blocks are then created from the block records on demand
+	 * (the entries do not have to be populated).
+	 * @param corpus - the corpus this index was built from.
+	 * @return false if the corpus does not have the entries the index was built from.
+	 */
+	public boolean bindEntries(Corpus corpus) {
+
+		List<Entry> corpusEntries = new ArrayList<> ();
+
+		for (Entry entry : corpus) { corpusEntries.add ( entry ); }
+
+		if (corpusEntries.size () != this.numOfEntries) { return false; }
+
+		for (int entryNumber = 0; entryNumber < this.numOfEntries; entryNumber++) {
+
+			String corpusPath = CacheFiles.relativePath ( corpus, corpusEntries.get ( entryNumber ) );
+
+			if (!this.entryPath ( entryNumber ).equals ( corpusPath )) {
+				return false;
+			}
+		}
+
+		this.entries = corpusEntries;
+
+		return true;
+	}
+
+	/**
+	 * @return the number of entries the index was built from
+	 */
+	public int numOfEntries() { return this.numOfEntries; }
+
+	/**
+	 * @param entryNumber - the number of an entry in the index
+	 * @return the file path of the entry, relative to the corpus path.
+	 */
+	public String entryPath(int entryNumber) { return this.entryPaths[entryNumber]; }
+
+	/**
+	 * @param entryNumber - the number of an entry in the index
+	 * @return the fingerprint of the file of the entry when the index was built
+	 */
+	public Fingerprint entryFingerprint(int entryNumber) { return this.entryFingerprints[entryNumber]; }
+
+	/**
+	 * @param entryNumber - the number of an entry in the index, or numOfEntries()
+	 * @return the id of the first block of the entry, the blocks of an entry are the ids up to the first block
+	 * of the next entry. For numOfEntries() it is numOfBlocks().
+	 */
+	public int entryFirstBlock(int entryNumber) { return this.entryFirstBlocks[entryNumber]; }
+
+	/**
+	 * @return the checksum of the corpus the index was built from
+	 */
+	public String getChecksum() { return this.checksum; }
+
+	/**
+	 * @return the name of the index type
+	 */
+	public String getIndexType() { return this.indexType; }
+
+	/**
+	 * @return the name of the parsing rule the corpus was parsed with
+	 */
+	public String getParserName() { return this.parserName; }
+
+	/**
+	 * @return the number of blocks in the index
+	 */
+	public int numOfBlocks() { return this.numOfBlocks; }
+
+	/**
+	 * @return the number of terms in the index
+	 */
+	public int numOfTerms() { return this.numOfTerms; }
+
+	/**
+	 * get the id of a term
+	 * @param term - the term, a stemmed word
+	 * @return the term id, or TermDictionary.NOT_FOUND if the term is not in the index.
+	 */
+	public int termId(CharSequence term) {
+
+		int hash = TermDictionary.hash ( term );
+
+		int mask = this.slotsLength - 1;
+
+		for (int slot = TermDictionary.spread ( hash ) & mask; ; slot = (slot + 1) & mask) {
+
+			int termId = this.buffer.getInt ( this.slotsStart + slot * INT_BYTES ) - 1;
+
+			if (termId < 0) { return TermDictionary.NOT_FOUND; }
+
+			if (this.buffer.getInt ( this.termHashesStart + termId * INT_BYTES ) == hash &&
+				this.termEquals ( termId, term )) {
+				return termId;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of occurrences of a term
+	 */
+	public int size(int termId) { return this.buffer.getInt ( this.countsStart + termId * INT_BYTES ); }
+
+	/**
+	 * @return the number of blocks a term occurs in
+	 */
+	public int documentFrequency(int termId) { return this.buffer.getInt ( this.frequenciesStart + termId * INT_BYTES ); }
+
+	/**
+	 * @return the number of indexed words in a block, stop words are not indexed.
+	 */
+	public int blockLength(int blockId) {
+		return this.buffer.getInt ( this.blocksStart + blockId * BLOCK_RECORD_BYTES + BLOCK_LENGTH_FIELD );
+	}
+
+	/**
+	 * @return the average blockLength() of the blocks of the index
+	 */
+	public double averageBlockLength() { return this.averageBlockLength; }
+
+	/**
+	 * get a cursor over the occurrences of a term
+	 * @param termId - the id of the term
+	 * @return a new PostingsCursor positioned before the first occurrence.
+	 */
+	public PostingsCursor cursor(int termId) {
+		int start = this.postingsPoolStart + this.buffer.getInt ( this.postingsStartsStart + termId * INT_BYTES );
+		int end = this.postingsPoolStart + this.buffer.getInt ( this.postingsStartsStart + (termId + 1) * INT_BYTES );
+
+		int numOfOccurrences = this.size ( termId );
+		int numOfSkips = PostingsTable.numOfSkips ( numOfOccurrences );
+
+		return new PostingsCursor ( this.buffer, start, numOfSkips, start + numOfSkips * PostingsTable.SKIP_ENTRY_BYTES,
+									end, NO_BLOCK, numOfOccurrences );
+	}
+
+	/**
+	 * get a block by its id, blocks are created on first use. The same Block is returned for a block id
+	 * every time, also to threads that ask for it at once.
+	 * @param blockId - the id of the block
+	 * @return the Block
+	 */
+	public Block block(int blockId) {
+
+		Block block = this.blocks.get ( blockId );
+
+		if (block == null) {
+
+			Entry entry = this.entries.get ( this.buffer.getInt ( this.blocksStart + blockId * BLOCK_RECORD_BYTES ) );
+
+			// only the first of racing threads stores its block, all of them return that one
+			this.blocks.compareAndSet ( blockId, null, this.restoreBlock ( blockId, entry ) );
+
+			block = this.blocks.get ( blockId );
+		}
+
+		return block;
+	}
+
+	/**
+	 * Create a new Block from the record of a block id, as a block of a given entry. Used to carry the blocks
+	 * of an unchanged entry over to a new index without parsing the entry again.
+	 * @param blockId   the id of the block
+	 * @param entry     the entry the block belongs to
+	 * @return the Block, it is not cached by the index.
+	 */
+	public Block restoreBlock(int blockId, Entry entry) {
+
+		int record = this.blocksStart + blockId * BLOCK_RECORD_BYTES;
+
+		return entry.restoreBlock ( this.buffer.getLong ( record + BLOCK_START_FIELD ),
+									this.buffer.getLong ( record + BLOCK_END_FIELD ),
+									this.metadata.get ( this.buffer.getInt ( record + BLOCK_METADATA_FIELD ) ) );
+	}
+
+	/**
+	 * get a term by its id
+	 * @param termId - the id of the term
+	 * @return the term as a String
+	 */
+	public String term(int termId) {
+
+		int start = this.buffer.getInt ( this.termStartsStart + termId * INT_BYTES );
+
+		char[] chars = new char[this.buffer.getInt ( this.termStartsStart + (termId + 1) * INT_BYTES ) - start];
+
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) (this.buffer.get ( this.termPoolStart + start + i ) & 0xFF);
+		}
+
+		return new String ( chars );
+	}
+
+	/*
+	read the entries section. The first blocks of the entries go up to the number of blocks.
+	 */
+	private void readEntries() throws IOException {
+
+		int position = this.entriesStart;
+
+		for (int entryNumber = 0; entryNumber < this.numOfEntries; entryNumber++) {
+			this.entryPaths[entryNumber] = CacheFiles.readString ( this.buffer, position );
+			position += CacheFiles.stringSize ( this.entryPaths[entryNumber] );
+			String checksum = CacheFiles.readString ( this.buffer, position );
+			position += CacheFiles.stringSize ( checksum );
+			CacheFiles.checkSection ( this.buffer, position, 2 * Long.BYTES );
+			long size = this.buffer.getLong ( position );
+			long lastModified = this.buffer.getLong ( position + Long.BYTES );
+			position += 2 * Long.BYTES;
+			String fileKey = CacheFiles.readString ( this.buffer, position );
+			position += CacheFiles.stringSize ( fileKey );
+			this.entryFingerprints[entryNumber] = new Fingerprint ( size, lastModified, fileKey, checksum );
+			CacheFiles.checkSection ( this.buffer, position, INT_BYTES );
+			this.entryFirstBlocks[entryNumber] = this.buffer.getInt ( position );
+			position += INT_BYTES;
+		}
+		this.entryFirstBlocks[this.numOfEntries] = this.numOfBlocks;
+
+		for (int entryNumber = 0; entryNumber < this.numOfEntries; entryNumber++) {
+			if (this.entryFirstBlocks[entryNumber] < ((entryNumber == 0) ? 0 : this.entryFirstBlocks[entryNumber - 1]) ||
+				this.entryFirstBlocks[entryNumber] > this.numOfBlocks) {
+				throw new IOException ( CacheFiles.CORRUPT_FILE_MSG );
+			}
+		}
+	}
+
+	/*
+	read the metadata lists, by their numbers.
+	 */
+	private List<List<String>> readMetadata() throws IOException {
+
+		List<List<String>> metadataLists = new ArrayList<> ( this.numOfMetadata );
+
+		int listsStart = this.metadataStart + (this.numOfMetadata + 1) * INT_BYTES;
+
+		for (int metadataId = 0; metadataId < this.numOfMetadata; metadataId++) {
+
+			int position = listsStart + this.buffer.getInt ( this.metadataStart + metadataId * INT_BYTES );
+
+			CacheFiles.checkSection ( this.buffer, position, INT_BYTES );
+			int size = this.buffer.getInt ( position );
+			position += INT_BYTES;
+
+			List<String> metadataList = new ArrayList<> ();
+
+			for (int i = 0; i < size; i++) {
+				String metadataString = CacheFiles.readString ( this.buffer, position );
+				metadataList.add ( metadataString );
+				position += CacheFiles.stringSize ( metadataString );
+			}
+
+			metadataLists.add ( Collections.unmodifiableList ( metadataList ) );
+		}
+
+		return metadataLists;
+	}
+
+	/*
+	check that every block record names an entry and a metadata list of the index.
+	 */
+	private void checkBlocks() throws IOException {
+
+		for (int blockId = 0; blockId < this.numOfBlocks; blockId++) {
+
+			int record = this.blocksStart + blockId * BLOCK_RECORD_BYTES;
+			int entryNumber = this.buffer.getInt ( record );
+			int metadataId = this.buffer.getInt ( record + BLOCK_METADATA_FIELD );
+
+			if (entryNumber < 0 || entryNumber >= this.numOfEntries || metadataId < 0 ||
+				metadataId >= this.numOfMetadata) {
+				throw new IOException ( CacheFiles.CORRUPT_FILE_MSG );
+			}
+		}
+	}
+
+	/*
+	compare the stored bytes of a term to a char sequence.
+	 */
+	private boolean termEquals(int termId, CharSequence term) {
+
+		int start = this.buffer.getInt ( this.termStartsStart + termId * INT_BYTES );
+		int end = this.buffer.getInt ( this.termStartsStart + (termId + 1) * INT_BYTES );
+
+		if (end - start != term.length ()) { return false; }
+
+		for (int i = 0; i < term.length (); i++) {
+			if ((this.buffer.get ( this.termPoolStart + start + i ) & 0xFF) != term.charAt ( i )) { return false; }
+		}
+
+		return true;
+	}
+}
@@ -3,113 +3,247 @@ package dataStructures.dictionary;
 import dataStructures.Aindexer;
 import processing.parsingRules.IparsingRule;
 import processing.searchStrategies.DictionarySearch;
+import processing.searchStrategies.Matching;
+import processing.searchStrategies.Ranking;
 import processing.textStructure.Block;
 import processing.textStructure.Corpus;
 import processing.textStructure.Entry;
-import processing.textStructure.Word;
+import processing.textStructure.Fingerprint;
+import utils.CacheFiles;
 import utils.Stemmer;
 import utils.Stopwords;
 import utils.WrongMD5ChecksumException;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * An implementation of the abstract Aindexer class, backed by a simple hashmap to store words and their
- * locations within the files.
+ * An implementation of the abstract Aindexer class. While indexing the words and their locations within the
+ * files are gathered in a primitive PostingsTable, which is then laid out as a binary DictionaryIndex that is
+ * both searched and written as is to the cache file.
  */
 public class DictionaryIndexer extends Aindexer<DictionarySearch> {
 
 	private static final String WORD_FINDING_PATTERN = "[a-zA-Z]+";
 
-	private static final Stemmer STEMMER = new Stemmer();
 	public static final IndexTypes TYPE = IndexTypes.DICT;
-    private static final String DOT_CACHE = ".cache";
-    private static final String DOT = ".";
-    private static final String UNDER_SCORE = "_";
-    HashMap<Integer, List<Word>> dictionary;
+	/** By default every available core gets a worker when indexing. */
+	public static final int DEFAULT_NUM_OF_WORKERS = Runtime.getRuntime ().availableProcessors ();
+    private static final String PARALLEL_INDEXING_FAILED = "parallel indexing failed: ";
+    private static final String INDEX_LAYOUT_FAILED = "index layout failed: ";
+    private static final int NO_SEGMENT = -1;
+    private static final int NO_ENTRY = -1;
+    DictionaryIndex index;
 	DictionarySearch searchStrategy;
+	private int numOfWorkers;
+	private Ranking ranking = Ranking.PROXIMITY;
+	private Matching matching = Matching.ALL;
 
 	/**
-	 * Basic constructor, sets origin Corpus and initializes backing hashmap
+	 * Basic constructor, sets origin Corpus
 	 * @param origin    the Corpus to be indexed by this DS.
 	 */
 	public DictionaryIndexer(Corpus origin) {
 
-		super ( origin );
+		this ( origin, DEFAULT_NUM_OF_WORKERS );
+
+	}
+
+	/**
+	 * Constructor that also sets the size of the worker pool used by indexCorpus()
+	 * @param origin        the Corpus to be indexed by this DS.
+	 * @param numOfWorkers  number of threads tokenizing and stemming blocks, 1 means sequential indexing.
+	 */
+	public DictionaryIndexer(Corpus origin, int numOfWorkers) {
 
-		this.dictionary = new HashMap<> (  );
+		super ( origin );
 
+		this.setNumOfWorkers ( numOfWorkers );
 	}
 
-    /**Tries to find and load a cache file holding a Corpus and the Dictionary.
+	/**
+	 * setter for the number of indexing workers
+	 * @param numOfWorkers - int - number of threads, values smaller than 1 are treated as 1.
+	 */
+	public void setNumOfWorkers(int numOfWorkers) { this.numOfWorkers = Math.max ( 1, numOfWorkers ); }
+
+    /**Tries to find and map a cache file holding the binary index of the Corpus.
+     * The file is mapped to memory and queried in place, nothing is deserialized.
+     * If only some of the entries were added, removed or modified since the file was written, only those are
+     * parsed and indexed again, the postings of the other entries are copied from the file, and the updated
+     * index is written back. Only the files whose size, modification time or file key changed are read to
+     * find out which entries were modified.
      *
      * @throws WrongMD5ChecksumException if their is no cache file or if their is one but it does not match
-     * the current checksum.
+     * the current index type or parsing rule.
      * @throws IOException If had a problem when trying to load the cache file.
      */
-    @SuppressWarnings("unchecked")
     @Override
 	protected void readIndexedFile() throws WrongMD5ChecksumException, IOException {
 
-        File cacheFile = findCashFile();
-        if (cacheFile == null) {
+        File cacheFile = this.getCacheFile ( TYPE );
+        if ( !cacheFile.isFile () ) {
 
             throw new WrongMD5ChecksumException();
         }
-        try {
-            // Reading the object from a file
-            FileInputStream file = new FileInputStream(cacheFile);
-            ObjectInputStream in = new ObjectInputStream(file);
 
-            String cachedmd5 = (String) in.readObject();
+        DictionaryIndex cachedIndex;
 
-            if ( !this.origin.getChecksum().equals( cachedmd5 ) ) {
+        try (FileChannel channel = FileChannel.open ( cacheFile.toPath (), StandardOpenOption.READ )) {
 
-                    throw new WrongMD5ChecksumException();
-            }
+            // the mapping stays valid after the channel is closed
+            cachedIndex = new DictionaryIndex ( channel.map ( FileChannel.MapMode.READ_ONLY, 0, channel.size () ) );
+
+        } catch (IOException e) {
+            // not an index file of the current format, or a corrupt one, it will be rebuilt
+            throw new WrongMD5ChecksumException();
+        }
 
-            this.origin = (Corpus) in.readObject();
+        if ( !TYPE.name ().equals ( cachedIndex.getIndexType () ) ||
+             !this.getParserName ().equals ( cachedIndex.getParserName () ) ) {
 
-            this.dictionary = (HashMap)in.readObject();
+                throw new WrongMD5ChecksumException();
+        }
 
-            in.close();
-            file.close();
+        int[] previousNumbers = this.previousEntryNumbers ( cachedIndex );
 
+        List<Fingerprint> previousFingerprints = new ArrayList<> ( previousNumbers.length );
 
-        } catch (ClassNotFoundException e) {
-            e.printStackTrace();
+        for (int previousNumber : previousNumbers) {
+            previousFingerprints.add ( (previousNumber == NO_ENTRY) ? null :
+                                       cachedIndex.entryFingerprint ( previousNumber ) );
+        }
+
+        List<Fingerprint> fingerprints = this.origin.getFingerprints ( previousFingerprints, this.numOfWorkers );
+
+        if ( fingerprints.equals ( previousFingerprints ) && cachedIndex.bindEntries ( this.origin ) ) {
+
+            this.index = cachedIndex;
+            return;
         }
+
+        this.updateIndex ( cachedIndex, previousNumbers, fingerprints );
+        this.writeIndexFile ();
     }
 
-    /**
-     *Serializes the current Corpus & Dictionary
+    /*
+    get the number every entry of the corpus had in a previous index, by its path. NO_ENTRY for new entries.
      */
-    @Override
-    protected void writeIndexFile() {
-        File outputDirectory = getCacheFileAppropriateDir();
-        String cacheFileName = getCacheFileName();
+    private int[] previousEntryNumbers(DictionaryIndex previous) {
 
-        String path = outputDirectory.getPath() + File.separator + cacheFileName;
+        Map<String, Integer> previousEntries = new HashMap<> ();
 
-        // Serialization
-        try
-        {
+        for (int entryNumber = 0; entryNumber < previous.numOfEntries (); entryNumber++) {
+            previousEntries.put ( previous.entryPath ( entryNumber ), entryNumber );
+        }
 
-            FileOutputStream file = new FileOutputStream(path);
-            ObjectOutputStream out = new ObjectOutputStream(file);
+        List<Integer> previousNumbers = new ArrayList<> ();
 
-            out.writeObject(this.origin.getChecksum());
-            out.writeObject( this.origin );
-            out.writeObject( this.dictionary );
+        for (Entry currentEntry : this.origin) {
+            previousNumbers.add ( previousEntries.getOrDefault ( CacheFiles.relativePath ( this.origin, currentEntry ),
+                                                                 NO_ENTRY ) );
+        }
 
-            out.close();
-            file.close();
+        return previousNumbers.stream ().mapToInt ( Integer::intValue ).toArray ();
+    }
+
+    /*
+    index again only the entries that are new or whose checksum changed since a previous index was built.
+    Every entry is a segment of the postings: the segments of unchanged entries get the occurrences of the
+    previous index with their block ids shifted, the others are indexed from scratch, and the segments are then
+    appended in corpus order. Entries that were removed simply do not get a segment.
+    The index gives the same results as a full rebuild, but its terms keep the order of the previous index, so
+    the file is not necessarily the same.
+     */
+    private void updateIndex(DictionaryIndex previous, int[] previousNumbers, List<Fingerprint> fingerprints)
+            throws IOException {
+
+        List<List<Block>> entryBlocks = new ArrayList<> ();
+        List<PostingsTable> segments = new ArrayList<> ();
+
+        // for every block id of the previous index, the segment it is copied to and its new block id
+        int[] blockSegments = new int[previous.numOfBlocks ()];
+        int[] newBlockIds = new int[previous.numOfBlocks ()];
+        Arrays.fill ( blockSegments, NO_SEGMENT );
+
+        int numOfBlocks = 0;
+
+        for (Entry currentEntry : this.origin) {
+
+            int previousNumber = previousNumbers[entryBlocks.size ()];
+
+            String entryChecksum = fingerprints.get ( entryBlocks.size () ).getChecksum ();
+
+            List<Block> blocks = new ArrayList<> ();
+
+            if (previousNumber != NO_ENTRY &&
+                previous.entryFingerprint ( previousNumber ).getChecksum ().equals ( entryChecksum )) {
+
+                int lastBlockId = previous.entryFirstBlock ( previousNumber + 1 );
+
+                for (int blockId = previous.entryFirstBlock ( previousNumber ); blockId < lastBlockId; blockId++) {
+                    blockSegments[blockId] = segments.size ();
+                    newBlockIds[blockId] = numOfBlocks + blocks.size ();
+                    blocks.add ( previous.restoreBlock ( blockId, currentEntry ) );
+                }
+
+                segments.add ( new PostingsTable () );
+
+            } else {
+
+                currentEntry.populate ();
+
+                for (Block currentBlock : currentEntry) { blocks.add ( currentBlock ); }
+
+                segments.add ( indexBlocks ( blocks, numOfBlocks ) );
+            }
+
+            entryBlocks.add ( blocks );
+            numOfBlocks += blocks.size ();
+        }
+
+        // a single pass over the previous postings fills the segments of all the unchanged entries
+        for (int termId = 0; termId < previous.numOfTerms (); termId++) {
+
+            String term = previous.term ( termId );
+
+            PostingsCursor cursor = previous.cursor ( termId );
+
+            while (cursor.next ()) {
+
+                int segment = blockSegments[cursor.blockId ()];
+
+                if (segment != NO_SEGMENT) {
+                    segments.get ( segment ).add ( term, newBlockIds[cursor.blockId ()], cursor.offset (),
+                                                   cursor.length (), cursor.tokenPosition () );
+                }
+            }
+        }
+
+        PostingsTable postings = new PostingsTable ();
+
+        for (PostingsTable segment : segments) { postings.appendAll ( segment ); }
+
+        this.buildIndex ( postings, entryBlocks, fingerprints );
+    }
+
+    /**
+     *Writes the binary index of the Corpus to the cache file.
+     */
+    @Override
+    protected void writeIndexFile() {
+        try {
+
+            replaceCacheFile ( this.getCacheFile ( TYPE ).toPath (), this.index::writeTo );
 
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -117,106 +251,142 @@ public class DictionaryIndexer extends Aindexer<DictionarySearch> {
     }
 
     /*
-    index the corpus files to Block objects
+    index the corpus files to Block objects.
+    The blocks are split to contiguous chunks, each chunk is indexed by a worker to a partial postings
+    table, and the partial tables are merged in chunk order so the postings keep the sequential order.
      */
     @Override
     protected void indexCorpus()  {
 
-        Pattern wordFinder = Pattern.compile (WORD_FINDING_PATTERN);
-
-        Matcher wordMatcher = wordFinder.matcher ( "" );
+        // the block ids used in the postings are the indices of this list
+        List<Block> blocks = new ArrayList<> ();
+        List<List<Block>> entryBlocks = new ArrayList<> ();
 
         for (Entry currentEntry: this.origin) {
 
-            for (Block currentBlock : currentEntry) {
-				try {
-					this.indexBlock ( currentBlock, wordMatcher );
-				} catch (Exception e) { System.out.println (e.toString ());}
+            List<Block> currentEntryBlocks = new ArrayList<> ();
 
-            }
+            for (Block currentBlock : currentEntry) { currentEntryBlocks.add ( currentBlock ); }
+
+            blocks.addAll ( currentEntryBlocks );
+            entryBlocks.add ( currentEntryBlocks );
+        }
+
+        PostingsTable postings = new PostingsTable ();
+
+        int workers = Math.min ( this.numOfWorkers, blocks.size () );
+
+        if (workers <= 1) {
+            postings.appendAll ( indexBlocks ( blocks, 0 ) );
+        } else {
+            this.indexInParallel ( blocks, workers, postings );
+        }
+
+        try {
+            this.buildIndex ( postings, entryBlocks, this.origin.getFingerprints ( null, this.numOfWorkers ) );
+        } catch (IOException e) {
+            throw new RuntimeException ( INDEX_LAYOUT_FAILED + e.getMessage () );
         }
     }
 
-    /**Searches for a cache file, in the Corpus-Directory,
-     * in the case where the corpus is 1 file then in the directory where the corpus is.
-     *
-     * @return a File representing the Cache file, Null if not found.
+    /*
+    lay out the postings of the whole corpus as the searched index.
      */
-    private File findCashFile(){
+    private void buildIndex(PostingsTable postings, List<List<Block>> entryBlocks, List<Fingerprint> fingerprints)
+            throws IOException {
 
-        String cacheFileName = getCacheFileName();
-        File searchedDirectory = getCacheFileAppropriateDir();
+        postings.trimToSize ();
 
-        File[] cacheFiles = searchedDirectory.listFiles( file -> file.getName().equals( cacheFileName ) );
-        if( cacheFiles == null || cacheFiles.length == 0  ){
-            return null;
-        }
-        return cacheFiles[0];
-        // Assuming their is only one file, and that is not in a sub-directory.
+        this.index = DictionaryIndex.build ( TYPE.name (), this.getParserName (), Corpus.checksumOf ( fingerprints ),
+                                             this.origin, entryBlocks, fingerprints, postings );
+
+        this.index.bindEntries ( this.origin );
     }
 
     /*
-    getter for a File object
+    index the blocks on a pool of workers, each indexing a contiguous chunk of blocks.
      */
-    private File getCacheFileAppropriateDir() {
-        File cacheDir = new File( origin.getPath() );
+    private void indexInParallel(List<Block> blocks, int workers, PostingsTable postings) {
+
+        int chunkSize = (blocks.size () + workers - 1) / workers;
+
+        ExecutorService workerPool = Executors.newFixedThreadPool ( workers );
+
+        try {
+            List<Future<PostingsTable>> partialTables = new ArrayList<> ();
+
+            for (int from = 0; from < blocks.size (); from += chunkSize) {
 
-        if ( !cacheDir.isDirectory() ){
-            cacheDir = cacheDir.getParentFile();
+                int firstBlockId = from;
 
+                List<Block> chunk = blocks.subList ( from, Math.min ( from + chunkSize, blocks.size () ) );
+
+                partialTables.add ( workerPool.submit ( () -> indexBlocks ( chunk, firstBlockId ) ) );
+            }
+
+            for (Future<PostingsTable> partialTable : partialTables) {
+                postings.appendAll ( partialTable.get () );
+            }
+
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException ( PARALLEL_INDEXING_FAILED + e.getMessage () );
+        } finally {
+            workerPool.shutdown ();
         }
-        return cacheDir;
     }
-	/*
-	getter for cache file name (string)
-	 */
-    private String getCacheFileName() {
-        // Cashed file name pattern : < IndexerType > < ParseRule > < CorpusName > .cache
-
-        String indexerType = TYPE.name();
-        String parseRule = this.origin.getParsingRule().getClass().getName();
-        // Trim parseRule
-        parseRule = parseRule.substring( parseRule.lastIndexOf(DOT) + 1);
-
-        String corpusName = origin.getPath().substring( origin.getPath().lastIndexOf(File.separatorChar) + 1);
-        // Trim corpusName
-        if ( corpusName.lastIndexOf(DOT) > 0){
-            corpusName = corpusName.substring(0, corpusName.lastIndexOf(DOT));
+
+    /*
+    index a list of blocks to a new partial postings table. every call has its own Matcher and Stemmer as
+    neither is thread safe.
+     */
+    private static PostingsTable indexBlocks(List<Block> blocks, int firstBlockId) {
+
+        PostingsTable partialTable = new PostingsTable ();
+
+        Matcher wordMatcher = Pattern.compile ( WORD_FINDING_PATTERN ).matcher ( "" );
+
+        Stemmer stemmer = new Stemmer ();
+
+        int blockId = firstBlockId;
+
+        for (Block currentBlock : blocks) {
+            try {
+                indexBlock ( currentBlock, blockId, wordMatcher, stemmer, partialTable );
+            } catch (Exception e) { System.out.println (e.toString ());}
+
+            blockId++;
         }
-        return  indexerType + UNDER_SCORE + parseRule + UNDER_SCORE   + corpusName + DOT_CACHE;
+
+        return partialTable;
     }
 
     /*
     index a certain block using regex like you like it... yeah....
      */
-	private void indexBlock(Block block, Matcher wordMatcher) throws Exception{
+	private static void indexBlock(Block block, int blockId, Matcher wordMatcher, Stemmer stemmer,
+								   PostingsTable partialTable) throws Exception{
 
 		String blockText = (block.toString ()).toLowerCase ();
 
 		wordMatcher.reset ( blockText );
 
+		// stop words are not indexed but still take a position, so phrases match only consecutive words
+		int position = -1;
 
 		while (wordMatcher.find ()) {
 
 			String matchedWord = wordMatcher.group ();
 
+			position++;
+
 			//if match is a stop word, ignore it and continue to next match.
 			if (Stopwords.isStopword ( matchedWord )) { continue; }
 
 			long offsetWithinBlock = wordMatcher.start( );
 			long endWithinBlock = wordMatcher.end ( );
 
-			Word tempWord = new Word ( block, offsetWithinBlock, endWithinBlock );
-
-			Integer matchStemmedHash = (STEMMER.stem ( matchedWord ) ).hashCode ();
-
-
-			if (!this.dictionary.containsKey ( matchStemmedHash )) {
-
-				this.dictionary.put ( matchStemmedHash, new LinkedList<Word> () );
-			}
-
-			this.dictionary.get ( matchStemmedHash ).add ( tempWord );
+			partialTable.add ( stemmer.stem ( matchedWord ), blockId, offsetWithinBlock,
+							   (int) (endWithinBlock - offsetWithinBlock), position );
 		}
 	}
 
@@ -227,13 +397,27 @@ public class DictionaryIndexer extends Aindexer<DictionarySearch> {
 	@Override
 	public IparsingRule getParseRule() { return this.origin.getParsingRule (); }
 
+	/**
+	 * Set the ranking of the results of the search interfaces created after the call
+	 * @param ranking - PROXIMITY by default, or BM25.
+	 */
+	@Override
+	public void setRanking(Ranking ranking) { this.ranking = ranking; }
+
+	/**
+	 * Set the matching of the query words of the search interfaces created after the call
+	 * @param matching - ALL by default, or ANY.
+	 */
+	@Override
+	public void setMatching(Matching matching) { this.matching = matching; }
+
 	/**
 	 * getter for the DictionarySearch obj
 	 * @return DictionarySearch
 	 */
 	@Override
 	public DictionarySearch asSearchInterface() {
-		return new DictionarySearch ( this.dictionary );
+		return new DictionarySearch ( this.index, this.ranking, this.matching );
 	
 	}
 
@@ -0,0 +1,276 @@
+package dataStructures.dictionary;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A forward-only cursor over the occurrences of a single term. The occurrences are decoded one at a time,
+ * straight from the compressed bytes (on the heap or in a mapped index file), so iterating them allocates
+ * nothing.
+ *
+ * The occurrences of a term are grouped in postings blocks of PostingsTable.SKIP_INTERVAL occurrences. In an
+ * index file the postings of a term with more than one postings block start with a fixed size skip entry per
+ * postings block: the id of the last block in it, the end of its bytes, the offset and position of its last
+ * occurrence and the most occurrences of the term in a single block in it. A cursor gallops over the skip entries to reach a
+ * far block without decoding the postings blocks in between.
+ */
+public class PostingsCursor {
+
+	private static final int SKIP_LAST_BLOCK_FIELD = 0;
+	private static final int SKIP_END_FIELD = Integer.BYTES;
+	private static final int SKIP_LAST_OFFSET_FIELD = 2 * Integer.BYTES;
+	private static final int SKIP_LAST_POSITION_FIELD = 2 * Integer.BYTES + Long.BYTES;
+	private static final int SKIP_MAX_FREQUENCY_FIELD = 3 * Integer.BYTES + Long.BYTES;
+
+	private final ByteBuffer bytes;
+	private final int skipsStart;
+	private final int numOfSkips;
+	private final int start;
+	private final int end;
+	private final int numOfOccurrences;
+	private int position;
+	private int occurrencesRead;
+
+	private int blockId;
+	private long offset;
+	private int length;
+	private int tokenPosition;
+	private boolean onOccurrence;
+
+	/**
+	 * constructor for a cursor
+	 * @param bytes             a buffer holding the skip entries and the encoded occurrences, read only by
+	 *                          absolute index.
+	 * @param skipsStart        the index of the first skip entry
+	 * @param numOfSkips        the number of skip entries, 0 if the postings have none.
+	 * @param start             the index of the first encoded byte, the skip entry ends are relative to it.
+	 * @param end               the index after the last encoded byte
+	 * @param firstBlockId      the block id the first block delta is relative to.
+	 * @param numOfOccurrences  the number of occurrences of the term
+	 */
+	PostingsCursor(ByteBuffer bytes, int skipsStart, int numOfSkips, int start, int end, int firstBlockId,
+				   int numOfOccurrences) {
+		this.bytes = bytes;
+		this.skipsStart = skipsStart;
+		this.numOfSkips = numOfSkips;
+		this.start = start;
+		this.end = end;
+		this.position = start;
+		this.blockId = firstBlockId;
+		this.numOfOccurrences = numOfOccurrences;
+	}
+
+	/**
+	 * Move to the next occurrence.
+	 * @return true if there was one, false if all occurrences were read.
+	 */
+	public boolean next() {
+
+		if (this.position >= this.end) { return this.onOccurrence = false; }
+
+		int blockDelta = (int) this.readVLong ();
+
+		long offsetDelta = this.readVLong ();
+
+		// offsets are relative to the previous occurrence only within the same block
+		this.offset = (blockDelta == 0) ? this.offset + offsetDelta : offsetDelta;
+		this.blockId += blockDelta;
+		this.length = (int) this.readVLong ();
+
+		int positionDelta = (int) this.readVLong ();
+
+		this.tokenPosition = (blockDelta == 0) ? this.tokenPosition + positionDelta : positionDelta;
+		this.occurrencesRead++;
+
+		return this.onOccurrence = true;
+	}
+
+	/**
+	 * Move forward to the first occurrence in a block with an id of at least target. The cursor stays where it
+	 * is if it is on such an occurrence already, so the cursors of several terms can leapfrog each other.
+	 * Postings blocks that end before target are skipped whole.
+	 * @param target - the smallest block id to move to
+	 * @return true if there was such an occurrence, false if all occurrences were read.
+	 */
+	public boolean advanceToBlock(int target) {
+
+		if (this.numOfSkips > 0 && (!this.onOccurrence || this.blockId < target)) { this.skipTo ( target ); }
+
+		while (!this.onOccurrence || this.blockId < target) {
+			if (!this.next ()) { return false; }
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the number of occurrences of the term
+	 */
+	public int size() { return this.numOfOccurrences; }
+
+	/**
+	 * @return the block id of the current occurrence
+	 */
+	public int blockId() { return this.blockId; }
+
+	/**
+	 * @return the offset within the block of the current occurrence
+	 */
+	public long offset() { return this.offset; }
+
+	/**
+	 * @return the length of the current occurrence
+	 */
+	public int length() { return this.length; }
+
+	/**
+	 * @return the number of the word of the current occurrence within its block, stop words included.
+	 */
+	public int tokenPosition() { return this.tokenPosition; }
+
+	/**
+	 * An upper bound of the occurrences of the term in a single block, for the blocks of the postings block of
+	 * the current occurrence. Postings without skip entries are bound by the occurrences of the term.
+	 * @return the most occurrences of the term in a block of the current postings block.
+	 */
+	public int blockMaxTermFrequency() {
+		if (this.numOfSkips == 0) { return this.numOfOccurrences; }
+
+		return this.bytes.getInt ( this.skipEntry ( this.currentPostingsBlock () ) + SKIP_MAX_FREQUENCY_FIELD );
+	}
+
+	/**
+	 * An upper bound of the occurrences of the term in a single block, for the blocks from target up to
+	 * blockMaxEnd(target). It is read from the skip entries without moving the cursor or decoding occurrences.
+	 * Postings without skip entries are bound by the occurrences of the term.
+	 * @param target - a block id, not before the block of the current occurrence.
+	 * @return the most occurrences of the term in a block of the postings block that may hold target, 0 if
+	 * the term is in no block from target on.
+	 */
+	public int blockMaxTermFrequency(int target) {
+		if (this.numOfSkips == 0) { return this.numOfOccurrences; }
+
+		int postingsBlock = this.findPostingsBlock ( target, this.currentPostingsBlock () );
+
+		if (postingsBlock == this.numOfSkips) { return 0; }
+
+		return this.bytes.getInt ( this.skipEntry ( postingsBlock ) + SKIP_MAX_FREQUENCY_FIELD );
+	}
+
+	/**
+	 * @param target - a block id, not before the block of the current occurrence.
+	 * @return the block id after the last block that blockMaxTermFrequency(target) bounds.
+	 */
+	public int blockMaxEnd(int target) {
+		if (this.numOfSkips == 0) { return Integer.MAX_VALUE; }
+
+		int postingsBlock = this.findPostingsBlock ( target, this.currentPostingsBlock () );
+
+		if (postingsBlock == this.numOfSkips) { return Integer.MAX_VALUE; }
+
+		return this.lastBlockId ( postingsBlock ) + 1;
+	}
+
+	/**
+	 * An upper bound of the occurrences of the term in a single block, for all the blocks.
+	 * @return the most occurrences of the term in a block, or the occurrences of the term if its postings have
+	 * no skip entries.
+	 */
+	public int maxTermFrequency() {
+		if (this.numOfSkips == 0) { return this.numOfOccurrences; }
+
+		int maxFrequency = 0;
+
+		for (int postingsBlock = 0; postingsBlock < this.numOfSkips; postingsBlock++) {
+			maxFrequency = Math.max ( maxFrequency,
+									  this.bytes.getInt ( this.skipEntry ( postingsBlock ) + SKIP_MAX_FREQUENCY_FIELD ) );
+		}
+
+		return maxFrequency;
+	}
+
+	/**
+	 * @return the index after the bytes of the current occurrence, relative to the first encoded byte.
+	 */
+	int bytesRead() { return this.position - this.start; }
+
+	/*
+	jump to the first postings block that may hold target, searched for from the one of the next occurrence.
+	 */
+	private void skipTo(int target) {
+
+		int next = this.occurrencesRead / PostingsTable.SKIP_INTERVAL;
+
+		int found = this.findPostingsBlock ( target, next );
+
+		if (found == next) { return; }
+
+		// continue decoding after the last occurrence of the postings block before it
+		int low = found - 1;
+		int entry = this.skipEntry ( low );
+
+		this.position = this.start + this.bytes.getInt ( entry + SKIP_END_FIELD );
+		this.blockId = this.bytes.getInt ( entry + SKIP_LAST_BLOCK_FIELD );
+		this.offset = this.bytes.getLong ( entry + SKIP_LAST_OFFSET_FIELD );
+		this.tokenPosition = this.bytes.getInt ( entry + SKIP_LAST_POSITION_FIELD );
+		this.occurrencesRead = (low + 1) * PostingsTable.SKIP_INTERVAL;
+		this.onOccurrence = false;
+	}
+
+	/*
+	find the first postings block from a given one whose last block id is at least target, numOfSkips if there
+	is none. the postings blocks are galloped over by their last block id, then the one found is binary searched for.
+	 */
+	private int findPostingsBlock(int target, int from) {
+
+		if (from >= this.numOfSkips || this.lastBlockId ( from ) >= target) { return from; }
+
+		// every postings block up to low ends before target
+		int low = from;
+		int step = 1;
+
+		while (low + step < this.numOfSkips && this.lastBlockId ( low + step ) < target) {
+			low += step;
+			step *= 2;
+		}
+
+		int high = Math.min ( low + step, this.numOfSkips );
+
+		while (high - low > 1) {
+			int middle = (low + high) >>> 1;
+
+			if (this.lastBlockId ( middle ) < target) { low = middle; } else { high = middle; }
+		}
+
+		return high;
+	}
+
+	/*
+	the postings block of the current occurrence, the postings blocks before it end before its block.
+	 */
+	private int currentPostingsBlock() {
+		return Math.min ( Math.max ( 0, this.occurrencesRead - 1 ) / PostingsTable.SKIP_INTERVAL, this.numOfSkips - 1 );
+	}
+
+	private int lastBlockId(int postingsBlock) {
+		return this.bytes.getInt ( this.skipEntry ( postingsBlock ) + SKIP_LAST_BLOCK_FIELD );
+	}
+
+	private int skipEntry(int postingsBlock) { return this.skipsStart + postingsBlock * PostingsTable.SKIP_ENTRY_BYTES; }
+
+	/*
+	decode a single variable-byte number at the current position.
+	 */
+	private long readVLong() {
+		long value = 0;
+		int shift = 0;
+		byte current;
+
+		do {
+			current = this.bytes.get ( this.position++ );
+			value |= (long) (current & VByte.PAYLOAD_MASK) << shift;
+			shift += VByte.PAYLOAD_BITS;
+		} while ((current & VByte.CONTINUATION_BIT) != 0);
+
+		return value;
+	}
+}
@@ -0,0 +1,333 @@
+package dataStructures.dictionary;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compressed postings store built only on primitive arrays, used by the DictionaryIndexer.
+ * Terms are found through a TermDictionary of the actual terms, and the occurrences of every term are kept as
+ * one byte array of variable-byte encoded (block id, offset within the block, length, position) quadruplets,
+ * the position being the number of the word within the block, stop words included. The block ids are delta
+ * encoded, and so are the offsets and positions of consecutive occurrences within the same block, so most
+ * occurrences take 4 bytes. The occurrences are read back in order through a PostingsCursor.
+ * The table is only used while indexing, the built postings are then laid out in a DictionaryIndex, with skip
+ * entries for every SKIP_INTERVAL occurrences of a term (see PostingsCursor).
+ */
+public class PostingsTable {
+
+	/** returned by termId() for a term that is not in the table */
+	public static final int NOT_FOUND = TermDictionary.NOT_FOUND;
+
+	/** the number of occurrences in a postings block, the postings of a term get a skip entry per block */
+	public static final int SKIP_INTERVAL = 128;
+
+	/** last block id, end of the postings block bytes, last offset, last position and the most occurrences in
+	 * a block */
+	static final int SKIP_ENTRY_BYTES = 4 * Integer.BYTES + Long.BYTES;
+
+	private static final int INITIAL_CAPACITY = 1 << 9;
+	private static final int INITIAL_POSTINGS_BYTES = 8;
+	private static final int NO_BLOCK = -1;
+
+	private final TermDictionary terms;
+
+	// per term id
+	private int[] counts;
+	private int[] documentFrequencies;
+	private byte[][] postings;
+	private int[] postingsSizes;
+
+	// per term id, the last added occurrence, needed to delta encode the next one.
+	private int[] lastBlockIds;
+	private long[] lastOffsets;
+	private int[] lastPositions;
+
+	// per block id, the number of occurrences of all terms in the block
+	private int[] blockLengths;
+
+	/**
+	 * constructor for an empty PostingsTable
+	 */
+	public PostingsTable() {
+		this.terms = new TermDictionary ();
+		this.counts = new int[INITIAL_CAPACITY];
+		this.documentFrequencies = new int[INITIAL_CAPACITY];
+		this.blockLengths = new int[INITIAL_CAPACITY];
+		this.postings = new byte[INITIAL_CAPACITY][];
+		this.postingsSizes = new int[INITIAL_CAPACITY];
+		this.lastBlockIds = new int[INITIAL_CAPACITY];
+		this.lastOffsets = new long[INITIAL_CAPACITY];
+		this.lastPositions = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Add an occurrence of a term. The occurrences of a term must be added in document order - by block id,
+	 * and by offset within the same block.
+	 * @param term      the term, a stemmed word
+	 * @param blockId   the id of the block the occurrence is in
+	 * @param offset    offset of the occurrence within the block
+	 * @param length    length of the occurrence
+	 * @param position  the number of the word of the occurrence within the block, counting stop words.
+	 */
+	public void add(CharSequence term, int blockId, long offset, int length, int position) {
+
+		this.addOccurrence ( this.termIdOrInsert ( term ), blockId, offset, length, position );
+	}
+
+	/**
+	 * Append all the occurrences of another table after the occurrences in this table.
+	 * @param other - PostingsTable - a partial table, whose block ids come after the ones in this table.
+	 */
+	public void appendAll(PostingsTable other) {
+
+		for (int otherTerm = 0; otherTerm < other.numOfTerms (); otherTerm++) {
+
+			int termId = this.termIdOrInsert ( other.terms.term ( otherTerm ) );
+
+			PostingsCursor cursor = other.cursor ( otherTerm );
+
+			while (cursor.next ()) {
+				this.addOccurrence ( termId, cursor.blockId (), cursor.offset (), cursor.length (),
+									 cursor.tokenPosition () );
+			}
+		}
+	}
+
+	/*
+	encode an occurrence at the end of the postings of a term.
+	 */
+	private void addOccurrence(int termId, int blockId, long offset, int length, int position) {
+
+		int lastBlockId = this.lastBlockIds[termId];
+
+		if (blockId < lastBlockId || (blockId == lastBlockId && offset < this.lastOffsets[termId])) {
+			throw new IllegalArgumentException ( "occurrences must be added in document order" );
+		}
+
+		// a new block starts the offsets and positions from zero, the first block id is encoded as a delta from
+		// NO_BLOCK
+		long offsetDelta = (blockId == lastBlockId) ? offset - this.lastOffsets[termId] : offset;
+		int positionDelta = (blockId == lastBlockId) ? position - this.lastPositions[termId] : position;
+
+		this.ensurePostingsCapacity ( termId, 4 * VByte.MAX_BYTES );
+
+		byte[] bytes = this.postings[termId];
+		int end = this.postingsSizes[termId];
+
+		end = VByte.write ( bytes, end, blockId - lastBlockId );
+		end = VByte.write ( bytes, end, offsetDelta );
+		end = VByte.write ( bytes, end, length );
+		end = VByte.write ( bytes, end, positionDelta );
+
+		this.postingsSizes[termId] = end;
+		this.lastBlockIds[termId] = blockId;
+		this.lastOffsets[termId] = offset;
+		this.lastPositions[termId] = position;
+		this.counts[termId]++;
+
+		if (blockId != lastBlockId) { this.documentFrequencies[termId]++; }
+
+		if (blockId >= this.blockLengths.length) {
+			this.blockLengths = Arrays.copyOf ( this.blockLengths, Math.max ( blockId + 1, this.blockLengths.length * 2 ) );
+		}
+		this.blockLengths[blockId]++;
+	}
+
+	/**
+	 * Release the unused capacity of the postings arrays, should be called once indexing is done.
+	 */
+	public void trimToSize() {
+		this.terms.trimToSize ();
+
+		for (int termId = 0; termId < this.numOfTerms (); termId++) {
+			this.postings[termId] = Arrays.copyOf ( this.postings[termId], this.postingsSizes[termId] );
+		}
+	}
+
+	/**
+	 * get the id of a term
+	 * @param term - the term, a stemmed word
+	 * @return the term id, or NOT_FOUND if the term has no occurrences.
+	 */
+	public int termId(CharSequence term) { return this.terms.termId ( term ); }
+
+	/**
+	 * @return the number of occurrences of a term
+	 */
+	public int size(int termId) { return this.counts[termId]; }
+
+	/**
+	 * @return the number of blocks a term occurs in
+	 */
+	public int documentFrequency(int termId) { return this.documentFrequencies[termId]; }
+
+	/**
+	 * @return the number of occurrences of all the terms in a block
+	 */
+	public int blockLength(int blockId) { return blockId < this.blockLengths.length ? this.blockLengths[blockId] : 0; }
+
+	/**
+	 * get a cursor over the occurrences of a term
+	 * @param termId - the id of the term
+	 * @return a new PostingsCursor positioned before the first occurrence.
+	 */
+	public PostingsCursor cursor(int termId) {
+		return new PostingsCursor ( ByteBuffer.wrap ( this.postings[termId] ), 0, 0, 0, this.postingsSizes[termId],
+									NO_BLOCK, this.counts[termId] );
+	}
+
+	/**
+	 * @return the number of skip entries of the postings of a term in a DictionaryIndex, only postings of
+	 * more than one postings block have skip entries.
+	 */
+	static int numOfSkips(int numOfOccurrences) {
+		return numOfOccurrences > SKIP_INTERVAL ? (numOfOccurrences + SKIP_INTERVAL - 1) / SKIP_INTERVAL : 0;
+	}
+
+	/**
+	 * @return the dictionary of the terms in the table
+	 */
+	public TermDictionary getTerms() { return this.terms; }
+
+	/**
+	 * @return the number of bytes writeTo() writes
+	 */
+	public long bytes() {
+
+		long bytes = (3L * this.numOfTerms () + 1) * Integer.BYTES;
+
+		for (int termId = 0; termId < this.numOfTerms (); termId++) {
+			bytes += (long) numOfSkips ( this.counts[termId] ) * SKIP_ENTRY_BYTES + this.postingsSizes[termId];
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Write the postings in the layout of the DictionaryIndex postings section: (numOfTerms + 1) starts of
+	 * the postings of each term within the postings bytes, numOfTerms occurrence counts, numOfTerms document
+	 * frequencies, then the postings of every term: its skip entries followed by its encoded occurrences.
+	 * @param out - the stream to write to
+	 */
+	public void writeTo(DataOutputStream out) throws IOException {
+
+		int start = 0;
+
+		for (int termId = 0; termId < this.numOfTerms (); termId++) {
+			out.writeInt ( start );
+			start += numOfSkips ( this.counts[termId] ) * SKIP_ENTRY_BYTES + this.postingsSizes[termId];
+		}
+		out.writeInt ( start );
+
+		for (int termId = 0; termId < this.numOfTerms (); termId++) { out.writeInt ( this.counts[termId] ); }
+
+		for (int termId = 0; termId < this.numOfTerms (); termId++) { out.writeInt ( this.documentFrequencies[termId] ); }
+
+		for (int termId = 0; termId < this.numOfTerms (); termId++) {
+			this.writeSkips ( termId, out );
+			out.write ( this.postings[termId], 0, this.postingsSizes[termId] );
+		}
+	}
+
+	/*
+	write the skip entries of a term. the most occurrences in a block of a postings block count all the
+	occurrences of a block that only starts or ends in it, so it bounds every block it holds occurrences of.
+	 */
+	private void writeSkips(int termId, DataOutputStream out) throws IOException {
+
+		int numOfSkips = numOfSkips ( this.counts[termId] );
+
+		if (numOfSkips == 0) { return; }
+
+		int numOfOccurrences = this.counts[termId];
+
+		int[] blockIds = new int[numOfOccurrences];
+		long[] offsets = new long[numOfOccurrences];
+		int[] positions = new int[numOfOccurrences];
+		int[] ends = new int[numOfOccurrences];
+
+		PostingsCursor cursor = this.cursor ( termId );
+
+		for (int i = 0; cursor.next (); i++) {
+			blockIds[i] = cursor.blockId ();
+			offsets[i] = cursor.offset ();
+			positions[i] = cursor.tokenPosition ();
+			ends[i] = cursor.bytesRead ();
+		}
+
+		// the occurrences of the term in the block of every occurrence
+		int[] frequencies = new int[numOfOccurrences];
+
+		for (int runStart = 0, runEnd; runStart < numOfOccurrences; runStart = runEnd) {
+
+			for (runEnd = runStart; runEnd < numOfOccurrences && blockIds[runEnd] == blockIds[runStart]; runEnd++) { }
+
+			Arrays.fill ( frequencies, runStart, runEnd, runEnd - runStart );
+		}
+
+		for (int postingsBlock = 0; postingsBlock < numOfSkips; postingsBlock++) {
+
+			int first = postingsBlock * SKIP_INTERVAL;
+			int last = Math.min ( first + SKIP_INTERVAL, numOfOccurrences ) - 1;
+
+			int maxFrequency = 0;
+			for (int i = first; i <= last; i++) { maxFrequency = Math.max ( maxFrequency, frequencies[i] ); }
+
+			out.writeInt ( blockIds[last] );
+			out.writeInt ( ends[last] );
+			out.writeLong ( offsets[last] );
+			out.writeInt ( positions[last] );
+			out.writeInt ( maxFrequency );
+		}
+	}
+
+	/**
+	 * @return the number of terms in the table
+	 */
+	public int numOfTerms() { return this.terms.numOfTerms (); }
+
+	/*
+	get the id of a term, adding the term to the table if it is not in it yet.
+	 */
+	private int termIdOrInsert(CharSequence term) {
+
+		int termId = this.terms.add ( term );
+
+		if (termId < this.postings.length && this.postings[termId] != null) { return termId; }
+
+		if (termId == this.postings.length) { this.growTerms (); }
+
+		this.postings[termId] = new byte[INITIAL_POSTINGS_BYTES];
+		this.lastBlockIds[termId] = NO_BLOCK;
+
+		return termId;
+	}
+
+	/*
+	make sure the postings of a term have room for a number of additional bytes.
+	 */
+	private void ensurePostingsCapacity(int termId, int additionalBytes) {
+		byte[] bytes = this.postings[termId];
+
+		if (this.postingsSizes[termId] + additionalBytes > bytes.length) {
+			this.postings[termId] = Arrays.copyOf ( bytes, Math.max ( bytes.length * 2,
+																	 bytes.length + additionalBytes ) );
+		}
+	}
+
+	/*
+	double the capacity of the per term arrays.
+	 */
+	private void growTerms() {
+		int newSize = this.postings.length * 2;
+		this.counts = Arrays.copyOf ( this.counts, newSize );
+		this.documentFrequencies = Arrays.copyOf ( this.documentFrequencies, newSize );
+		this.postings = Arrays.copyOf ( this.postings, newSize );
+		this.postingsSizes = Arrays.copyOf ( this.postingsSizes, newSize );
+		this.lastBlockIds = Arrays.copyOf ( this.lastBlockIds, newSize );
+		this.lastOffsets = Arrays.copyOf ( this.lastOffsets, newSize );
+		this.lastPositions = Arrays.copyOf ( this.lastPositions, newSize );
+	}
+}
@@ -1,24 +1,29 @@
 package dataStructures.dictionary;
 
-import processing.textStructure.Block;
-import processing.textStructure.Word;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 
 /**
- * a class that gathers Word object matching a certain query in a data structure that enables pulling results
- * that are relevant by the query word or the block they partain to.
+ * a class that gathers the occurrences matching the words of a query, grouped by query word at insertion: the
+ * occurrences of every query word are kept in the order of its postings, by block id and then by offset, so the
+ * blocks that contain all the query words are found by merging the sorted lists, and the occurrences of a
+ * query word in such a block are a contiguous run found in O(1).
  */
 public class ResultsAggregator {
 
-	// set of WordAndQuery obj
-	private HashSet<WordAndQuery> words;
+	private static final int INITIAL_CAPACITY = 16;
 
-	// Map of block to the query matches found in it.
-	private HashMap<Block, HashSet<String>> blockQueryCount;
+    private final int numOfQueries;
 
-    private int numOfQueries;
+	// per query word, its occurrences in the order of its postings
+	private final int[][] blockIds;
+	private final long[][] offsets;
+	private final int[][] lengths;
+	private final int[] numOfOccurrences;
+
+	// per valid block, its id and the run of occurrences of every query word in it
+	private int[] validBlocks;
+	private int[][] runStarts;
+	private int[][] runEnds;
 
 	/**
 	 * Constructure for the ResultsAggregator class
@@ -26,59 +31,139 @@ public class ResultsAggregator {
 	 */
 	public ResultsAggregator(int numOfQueries){
 
-		this.words = new HashSet<WordAndQuery> (  );
-
 		this.numOfQueries = numOfQueries;
 
-		this.blockQueryCount = new HashMap<>();
-
+		this.blockIds = new int[numOfQueries][INITIAL_CAPACITY];
+		this.offsets = new long[numOfQueries][INITIAL_CAPACITY];
+		this.lengths = new int[numOfQueries][INITIAL_CAPACITY];
+		this.numOfOccurrences = new int[numOfQueries];
 	}
 
 	/**
-	 * Add a Word object to data structure.
-	 * @param word - A word object - represents a word in the text matching a single query word.
-	 * @param query - String - single query word
+	 * Add an occurrence of a query word, the occurrences of a query word must be added in the order of its
+	 * postings.
+	 * @param queryNumber - the number of the query word
+	 * @param blockId - the id of the block of the occurrence
+	 * @param offset - the offset of the occurrence within the block
+	 * @param length - the length of the occurrence
 	 */
-	public void addWord(Word word, String query){
+	public void addOccurrence(int queryNumber, int blockId, long offset, int length){
 
-		if (! this.blockQueryCount.containsKey ( word.getSrcBlk () )){
+		int index = this.numOfOccurrences[queryNumber]++;
 
-		    this.blockQueryCount.put ( word.getSrcBlk (), new HashSet<>() );
+		if (index == this.blockIds[queryNumber].length) {
+			int capacity = index * 2;
+
+			this.blockIds[queryNumber] = Arrays.copyOf ( this.blockIds[queryNumber], capacity );
+			this.offsets[queryNumber] = Arrays.copyOf ( this.offsets[queryNumber], capacity );
+			this.lengths[queryNumber] = Arrays.copyOf ( this.lengths[queryNumber], capacity );
 		}
 
-		this.blockQueryCount.get(word.getSrcBlk()).add(query);
+		this.blockIds[queryNumber][index] = blockId;
+		this.offsets[queryNumber][index] = offset;
+		this.lengths[queryNumber][index] = length;
+	}
+
+	/**
+	 * getter for the ids of the blocks that contain an occurrence of every query word, merges the occurrence
+	 * lists of the query words on the first call.
+	 * @return int[] the ids of the valid blocks, ascending. the index of a block in it is its valid block number.
+	 */
+	public int[] getAllValidBlocks() {
+		if (this.validBlocks == null) { this.mergeOccurrences (); }
 
-		this.words.add(new WordAndQuery(word, query));
-		}
+		return this.validBlocks;
+	}
 
 	/**
-	 * getter for the set of BlockResultsGroup classes held by ResultsAggregator.
-	 * @return Collection<BlockResultsGroup> existingBlocks - set of  BlockResultsGroups
+	 * @param validBlock - the number of a valid block
+	 * @param queryNumber - the number of a query word
+	 * @return the index of the first occurrence of the query word in the block
 	 */
-	public Collection<Block> getAllValidBlocks() {
-	    HashSet<Block> validBlockSet = new HashSet<>();
+	public int firstOccurrence(int validBlock, int queryNumber) { return this.runStarts[validBlock][queryNumber]; }
 
-        for (Block block: blockQueryCount.keySet()) {
-            if (blockQueryCount.get(block).size() == numOfQueries) { validBlockSet.add(block); }
-        }
+	/**
+	 * @param validBlock - the number of a valid block
+	 * @param queryNumber - the number of a query word
+	 * @return the index after the last occurrence of the query word in the block
+	 */
+	public int endOfOccurrences(int validBlock, int queryNumber) { return this.runEnds[validBlock][queryNumber]; }
 
-        return validBlockSet;
-	}
+	/**
+	 * @return the offset within its block of an occurrence of a query word
+	 */
+	public long offset(int queryNumber, int occurrence) { return this.offsets[queryNumber][occurrence]; }
 
 	/**
-	 * getter for a collection of WordAndQuery objects matching a particular Block obj.
-	 * @param block - a block obj
-	 * @return HashSet<WordAndQuery>  wordAndQueries
+	 * @return the length of an occurrence of a query word
 	 */
-    public Collection<WordAndQuery> getWordsByBlock(Block block) {
-        HashSet<WordAndQuery>  wordAndQueries = new HashSet<>();
+	public int length(int queryNumber, int occurrence) { return this.lengths[queryNumber][occurrence]; }
+
+	/*
+	merge the occurrence lists of all the query words by block id: every list is moved up to the largest block id
+	any of them is at, and when all of them reach the same block its runs are recorded.
+	 */
+	private void mergeOccurrences() {
+
+		int[] validBlockIds = new int[INITIAL_CAPACITY];
+		int[][] starts = new int[INITIAL_CAPACITY][];
+		int[][] ends = new int[INITIAL_CAPACITY][];
+		int numOfValidBlocks = 0;
+
+		int[] current = new int[this.numOfQueries];
 
-        for (WordAndQuery wordQuery: words) {
-            if (wordQuery.block == block) {
-                wordAndQueries.add(wordQuery); }
-        }
+		while (this.numOfQueries > 0) {
 
-        return wordAndQueries;
-    }
+			int target = -1;
 
+			for (int queryNumber = 0; queryNumber < this.numOfQueries; queryNumber++) {
+				if (current[queryNumber] == this.numOfOccurrences[queryNumber]) { target = -1; break; }
+
+				target = Math.max ( target, this.blockIds[queryNumber][current[queryNumber]] );
+			}
+
+			if (target < 0) { break; }
+
+			boolean allInTarget = true;
+
+			for (int queryNumber = 0; queryNumber < this.numOfQueries; queryNumber++) {
+				current[queryNumber] = this.skipTo ( queryNumber, current[queryNumber], target );
+
+				allInTarget &= current[queryNumber] < this.numOfOccurrences[queryNumber] &&
+							   this.blockIds[queryNumber][current[queryNumber]] == target;
+			}
+
+			if (!allInTarget) { continue; }
+
+			if (numOfValidBlocks == validBlockIds.length) {
+				validBlockIds = Arrays.copyOf ( validBlockIds, numOfValidBlocks * 2 );
+				starts = Arrays.copyOf ( starts, numOfValidBlocks * 2 );
+				ends = Arrays.copyOf ( ends, numOfValidBlocks * 2 );
+			}
+
+			validBlockIds[numOfValidBlocks] = target;
+			starts[numOfValidBlocks] = current.clone ();
+
+			for (int queryNumber = 0; queryNumber < this.numOfQueries; queryNumber++) {
+				current[queryNumber] = this.skipTo ( queryNumber, current[queryNumber], target + 1 );
+			}
+
+			ends[numOfValidBlocks++] = current.clone ();
+		}
+
+		this.validBlocks = Arrays.copyOf ( validBlockIds, numOfValidBlocks );
+		this.runStarts = starts;
+		this.runEnds = ends;
+	}
+
+	/*
+	the index of the first occurrence of a query word, from an index on, in a block with an id of at least target.
+	 */
+	private int skipTo(int queryNumber, int occurrence, int target) {
+		while (occurrence < this.numOfOccurrences[queryNumber] && this.blockIds[queryNumber][occurrence] < target) {
+			occurrence++;
+		}
+
+		return occurrence;
+	}
 }
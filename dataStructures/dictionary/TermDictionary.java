@@ -0,0 +1,229 @@
+package dataStructures.dictionary;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A compact dictionary of the indexed terms, mapping each term to a dense term id.
+ * The terms themselves are kept in one byte pool (the indexer only produces stems of [a-z] letters, so one
+ * byte per char is enough), and are found through an open-addressing table that compares the actual term
+ * bytes, so two terms are never merged because of a hash collision. A lookup costs O(term length).
+ * The dictionary is only used while indexing, the built terms are then laid out in a DictionaryIndex.
+ */
+public class TermDictionary {
+
+	/** returned by termId() for a term that is not in the dictionary */
+	public static final int NOT_FOUND = -1;
+
+	private static final int INITIAL_CAPACITY = 1 << 10;
+	private static final int INITIAL_POOL_SIZE = 1 << 12;
+	static final int EMPTY_SLOT = 0;
+	private static final int MAX_TERM_CHAR = 0xFF;
+
+	// open-addressing table, holds the (term id + 1) of the term in the slot or EMPTY_SLOT.
+	private int[] slots;
+
+	// the bytes of term i are termPool[termStarts[i]] until termPool[termStarts[i + 1]]
+	private byte[] termPool;
+	private int[] termStarts;
+	private int[] termHashes;
+
+	private int numOfTerms;
+
+	/**
+	 * constructor for an empty TermDictionary
+	 */
+	public TermDictionary() {
+		this.slots = new int[INITIAL_CAPACITY];
+		this.termPool = new byte[INITIAL_POOL_SIZE];
+		this.termStarts = new int[INITIAL_CAPACITY / 2 + 1];
+		this.termHashes = new int[INITIAL_CAPACITY / 2];
+		this.numOfTerms = 0;
+	}
+
+	/**
+	 * get the id of a term, adding it to the dictionary if it is not in it yet.
+	 * @param term - the term, all of its chars must be in the range of a single byte.
+	 * @return the id of the term, ids are given in order of insertion starting from 0.
+	 */
+	public int add(CharSequence term) {
+
+		int hash = hash ( term );
+
+		int mask = this.slots.length - 1;
+
+		int slot = spread ( hash ) & mask;
+
+		for (; this.slots[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+
+			int termId = this.slots[slot] - 1;
+
+			if (this.termHashes[termId] == hash && this.termEquals ( termId, term )) { return termId; }
+		}
+
+		for (int i = 0; i < term.length (); i++) {
+			if (term.charAt ( i ) > MAX_TERM_CHAR) {
+				throw new IllegalArgumentException ( "term is not single byte: " + term );
+			}
+		}
+
+		int termId = this.numOfTerms++;
+
+		if (termId == this.termHashes.length) {
+			this.termHashes = Arrays.copyOf ( this.termHashes, termId * 2 );
+			this.termStarts = Arrays.copyOf ( this.termStarts, termId * 2 + 1 );
+		}
+
+		int start = this.termStarts[termId];
+
+		if (start + term.length () > this.termPool.length) {
+			this.termPool = Arrays.copyOf ( this.termPool, Math.max ( this.termPool.length * 2,
+																	 start + term.length () ) );
+		}
+
+		for (int i = 0; i < term.length (); i++) { this.termPool[start + i] = (byte) term.charAt ( i ); }
+
+		this.termStarts[termId + 1] = start + term.length ();
+		this.termHashes[termId] = hash;
+		this.slots[slot] = termId + 1;
+
+		// keep the load factor at most 1/2
+		if (this.numOfTerms * 2 > this.slots.length) { this.rehash (); }
+
+		return termId;
+	}
+
+	/**
+	 * get the id of a term
+	 * @param term - the term to look for
+	 * @return the term id, or NOT_FOUND if the term is not in the dictionary.
+	 */
+	public int termId(CharSequence term) {
+
+		int hash = hash ( term );
+
+		int mask = this.slots.length - 1;
+
+		for (int slot = spread ( hash ) & mask; this.slots[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+
+			int termId = this.slots[slot] - 1;
+
+			if (this.termHashes[termId] == hash && this.termEquals ( termId, term )) { return termId; }
+		}
+
+		return NOT_FOUND;
+	}
+
+	/**
+	 * get a term by its id
+	 * @param termId - the id of the term
+	 * @return the term as a String
+	 */
+	public String term(int termId) {
+
+		int start = this.termStarts[termId];
+
+		char[] chars = new char[this.termStarts[termId + 1] - start];
+
+		for (int i = 0; i < chars.length; i++) { chars[i] = (char) (this.termPool[start + i] & MAX_TERM_CHAR); }
+
+		return new String ( chars );
+	}
+
+	/**
+	 * @return the number of terms in the dictionary
+	 */
+	public int numOfTerms() { return this.numOfTerms; }
+
+	/**
+	 * @return the length of the open-addressing table
+	 */
+	public int slotsLength() { return this.slots.length; }
+
+	/**
+	 * @return the number of bytes writeTo() writes
+	 */
+	public long bytes() {
+		return (2L * this.numOfTerms + 1 + this.slots.length) * Integer.BYTES + this.termStarts[this.numOfTerms];
+	}
+
+	/**
+	 * Write the dictionary in the layout of the DictionaryIndex terms section: (numOfTerms + 1) starts of
+	 * the terms within the term bytes, numOfTerms term hashes, the open-addressing table, then the term bytes.
+	 * @param out - the stream to write to
+	 */
+	public void writeTo(DataOutputStream out) throws IOException {
+
+		for (int termId = 0; termId <= this.numOfTerms; termId++) { out.writeInt ( this.termStarts[termId] ); }
+
+		for (int termId = 0; termId < this.numOfTerms; termId++) { out.writeInt ( this.termHashes[termId] ); }
+
+		for (int slot : this.slots) { out.writeInt ( slot ); }
+
+		out.write ( this.termPool, 0, this.termStarts[this.numOfTerms] );
+	}
+
+	/**
+	 * Release the unused capacity of the dictionary, should be called once indexing is done.
+	 */
+	public void trimToSize() {
+		this.termPool = Arrays.copyOf ( this.termPool, this.termStarts[this.numOfTerms] );
+		this.termStarts = Arrays.copyOf ( this.termStarts, this.numOfTerms + 1 );
+		this.termHashes = Arrays.copyOf ( this.termHashes, this.numOfTerms );
+	}
+
+	/*
+	compare the stored bytes of a term to a char sequence.
+	 */
+	private boolean termEquals(int termId, CharSequence term) {
+
+		int start = this.termStarts[termId];
+
+		if (this.termStarts[termId + 1] - start != term.length ()) { return false; }
+
+		for (int i = 0; i < term.length (); i++) {
+			if ((this.termPool[start + i] & MAX_TERM_CHAR) != term.charAt ( i )) { return false; }
+		}
+
+		return true;
+	}
+
+	/*
+	double the open-addressing table and re-insert all term ids.
+	 */
+	private void rehash() {
+
+		this.slots = new int[this.slots.length * 2];
+
+		int mask = this.slots.length - 1;
+
+		for (int termId = 0; termId < this.numOfTerms; termId++) {
+
+			int slot = spread ( this.termHashes[termId] ) & mask;
+
+			while (this.slots[slot] != EMPTY_SLOT) { slot = (slot + 1) & mask; }
+
+			this.slots[slot] = termId + 1;
+		}
+	}
+
+	/*
+	the String.hashCode() of the term, computed without creating a String.
+	 */
+	static int hash(CharSequence term) {
+		int hash = 0;
+
+		for (int i = 0; i < term.length (); i++) { hash = 31 * hash + term.charAt ( i ); }
+
+		return hash;
+	}
+
+	/*
+	mix the bits of a hash, String hash codes of similar words differ mostly in their low bits.
+	 */
+	static int spread(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
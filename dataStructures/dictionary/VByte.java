@@ -0,0 +1,36 @@
+package dataStructures.dictionary;
+
+/**
+ * Variable-byte encoding of non negative numbers: 7 bits per byte, least significant group first, the high
+ * bit of a byte is set when more bytes of the same number follow.
+ */
+final class VByte {
+
+	/** the most bytes a long can take */
+	static final int MAX_BYTES = 10;
+
+	static final int PAYLOAD_BITS = 7;
+	static final int PAYLOAD_MASK = 0x7F;
+	static final int CONTINUATION_BIT = 0x80;
+
+	private VByte() { }
+
+	/**
+	 * Write a number to a byte array
+	 * @param bytes     the array, must have room for MAX_BYTES bytes from position
+	 * @param position  the index to write at
+	 * @param value     a non negative number
+	 * @return the index after the last written byte
+	 */
+	static int write(byte[] bytes, int position, long value) {
+
+		while ((value & ~PAYLOAD_MASK) != 0) {
+			bytes[position++] = (byte) ((value & PAYLOAD_MASK) | CONTINUATION_BIT);
+			value >>>= PAYLOAD_BITS;
+		}
+
+		bytes[position++] = (byte) value;
+
+		return position;
+	}
+}
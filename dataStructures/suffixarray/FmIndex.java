@@ -0,0 +1,367 @@
+package dataStructures.suffixarray;
+
+import processing.textStructure.Corpus;
+import processing.textStructure.Fingerprint;
+import utils.CacheFiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * The read-only FM-index of a corpus: a compressed full-text index of the same text as the SuffixArrayIndex,
+ * laid out in a flat binary file format and queried in place.
+ *
+ * The index keeps the Burrows-Wheeler transform of the text (the char before every suffix, in suffix array order)
+ * in a WaveletTree, instead of the text and the suffix array. The rows of the suffix array that start with a key
+ * are found by backward search, a pair of ranks per char of the key, whatever the size of the text. Only the
+ * rows of every SAMPLE_RATE-th position of the text keep their position, the position of any other row is found
+ * by stepping from it to the row of the suffix a char earlier (LF-mapping) until a sampled row is reached.
+ *
+ * The file is a header followed by sections, all numbers are big-endian:
+ *
+ * header   - MAGIC, VERSION, index type, parser name, the counts of entries and blocks, the length of the text,
+ *            the number of symbols, the number of wavelet tree levels and the offset of every section (offsets
+ *            are relative to the end of the header).
+ * entries  - as in the SuffixArrayIndex.
+ * blocks   - as in the SuffixArrayIndex.
+ * symbols  - the byte of every symbol (symbol 0 is the end of the text and has none), then (numOfSymbols + 1)
+ *            counts: the number of chars of the text (and its end) smaller than every symbol.
+ * bwt      - the WaveletTree of the symbols of the transform, which has a row more than the text for its end.
+ * sampled  - the RankBits of the rows whose position is sampled.
+ * samples  - the position of every sampled row, in row order.
+ *
+ * With the 39 chars of the normalized text, the transform takes 6 bits per char and the samples a bit more than
+ * one, about a sixth of the SuffixArrayIndex and less than the text itself.
+ * An index is safe to query from many threads at once: the buffer is only read by absolute index.
+ */
+public class FmIndex implements SubstringIndex {
+
+	/** "TSFM" */
+	public static final int MAGIC = 0x5453464D;
+	public static final int VERSION = 1;
+
+	/** the positions of the text that keep their row, every SAMPLE_RATE-th */
+	public static final int SAMPLE_RATE = 32;
+
+	private static final int INT_BYTES = Integer.BYTES;
+	private static final int BYTE_MASK = 0xFF;
+	private static final int NUM_OF_BYTES = 0x100;
+	private static final int END_SYMBOL = 0;
+	private static final int NO_SYMBOL = -1;
+	private static final int NUM_OF_SECTIONS = 6;
+	private static final int MAX_TEXT_LENGTH = Integer.MAX_VALUE / INT_BYTES - 1;
+	private static final int MAX_LEVELS = Integer.SIZE - Integer.numberOfLeadingZeros ( NUM_OF_BYTES );
+
+	private final ByteBuffer buffer;
+
+	private final String indexType;
+	private final String parserName;
+
+	private final int numOfEntries;
+	private final int numOfBlocks;
+	private final int textLength;
+
+	// absolute positions of the sections in the buffer
+	private final int entriesStart;
+	private final int blocksStart;
+	private final int samplesStart;
+
+	// by byte and by symbol
+	private final int[] symbols;
+	private final int[] counts;
+
+	private final WaveletTree bwt;
+	private final RankBits sampled;
+
+	/**
+	 * Read the header of an index and wrap it, the buffer is not copied.
+	 * @param buffer - a buffer holding a whole index file, positioned at its beginning.
+	 * @throws IOException if the buffer does not hold an index of the supported version, or if the index does
+	 * not fit in the buffer.
+	 */
+	public FmIndex(ByteBuffer buffer) throws IOException {
+
+		this.buffer = buffer.duplicate ();
+
+		int position = this.buffer.position ();
+
+		if (this.buffer.remaining () < 2 * INT_BYTES || this.buffer.getInt ( position ) != MAGIC ||
+			this.buffer.getInt ( position + INT_BYTES ) != VERSION) {
+			throw new IOException ( "not a supported index file" );
+		}
+		position += 2 * INT_BYTES;
+
+		this.indexType = CacheFiles.readString ( this.buffer, position );
+		position += CacheFiles.stringSize ( this.indexType );
+		this.parserName = CacheFiles.readString ( this.buffer, position );
+		position += CacheFiles.stringSize ( this.parserName );
+
+		int[] header = new int[5 + NUM_OF_SECTIONS];
+
+		CacheFiles.checkSection ( this.buffer, position, header.length * INT_BYTES );
+		for (int i = 0; i < header.length; i++, position += INT_BYTES) { header[i] = this.buffer.getInt ( position ); }
+
+		// section offsets are relative to the end of the header
+		this.numOfEntries = header[0];
+		this.numOfBlocks = header[1];
+		this.textLength = header[2];
+		int numOfSymbols = header[3];
+		int levels = header[4];
+		this.entriesStart = position + header[5];
+		this.blocksStart = position + header[6];
+		int symbolsStart = position + header[7];
+		int bwtStart = position + header[8];
+		int sampledStart = position + header[9];
+		this.samplesStart = position + header[10];
+
+		CacheFiles.checkCounts ( this.numOfEntries, this.numOfBlocks, this.textLength );
+
+		if (this.textLength > MAX_TEXT_LENGTH) { throw new IOException ( CacheFiles.CORRUPT_FILE_MSG ); }
+
+		// the symbols of the wavelet tree fit in its levels, every byte is a symbol at most
+		if (levels < 1 || levels > MAX_LEVELS || numOfSymbols < 1 || numOfSymbols > NUM_OF_BYTES + 1 ||
+			numOfSymbols > 1 << levels) {
+			throw new IOException ( CacheFiles.CORRUPT_FILE_MSG );
+		}
+
+		int rows = this.textLength + 1;
+
+		long[] starts = new long[NUM_OF_SECTIONS];
+		for (int i = 0; i < starts.length; i++) { starts[i] = position + (long) header[5 + i]; }
+
+		CacheFiles.checkSections ( this.buffer, position, starts, new long[] {
+				(long) this.numOfEntries * SuffixArrayIndex.MIN_ENTRY_BYTES,
+				(this.numOfBlocks + 1L) * INT_BYTES,
+				numOfSymbols + (numOfSymbols + 1L) * INT_BYTES,
+				WaveletTree.bytes ( rows, levels ),
+				RankBits.bytes ( rows ),
+				(this.textLength / SAMPLE_RATE + 1L) * INT_BYTES } );
+
+		this.symbols = new int[NUM_OF_BYTES];
+		Arrays.fill ( this.symbols, NO_SYMBOL );
+
+		for (int symbol = END_SYMBOL + 1; symbol < numOfSymbols; symbol++) {
+			this.symbols[this.buffer.get ( symbolsStart + symbol ) & BYTE_MASK] = symbol;
+		}
+
+		this.counts = new int[numOfSymbols + 1];
+
+		for (int symbol = 0; symbol <= numOfSymbols; symbol++) {
+			this.counts[symbol] = this.buffer.getInt ( symbolsStart + numOfSymbols + symbol * INT_BYTES );
+		}
+
+		this.bwt = new WaveletTree ( this.buffer, bwtStart, rows, levels );
+		this.sampled = new RankBits ( this.buffer, sampledStart, rows );
+
+		// the counts add up the symbols of the transform, and every sample is there
+		for (int symbol = 0; symbol < numOfSymbols; symbol++) {
+			if (this.counts[symbol + 1] - this.counts[symbol] != this.bwt.rank ( symbol, rows )) {
+				throw new IOException ( CacheFiles.CORRUPT_FILE_MSG );
+			}
+		}
+
+		if (this.counts[0] != 0 || this.sampled.rank ( rows ) != this.textLength / SAMPLE_RATE + 1) {
+			throw new IOException ( CacheFiles.CORRUPT_FILE_MSG );
+		}
+	}
+
+	/**
+	 * Transform the normalized text of the blocks of a corpus and lay out the index in a heap buffer. The suffix
+	 * array is sorted on the way, so building takes the memory of the SuffixArrayIndex for a while.
+	 * @param indexType         the name of the index type
+	 * @param parserName        the name of the parsing rule the corpus was parsed with
+	 * @param corpus            the corpus
+	 * @param blockTexts        the normalized text of every block of the corpus, in iteration order. Their
+	 *                          indices are the block ids of the index.
+	 * @param entryFingerprints the fingerprint of every entry of the corpus, in iteration order.
+	 * @return the index
+	 */
+	public static FmIndex build(String indexType, String parserName, Corpus corpus, List<String> blockTexts,
+								List<Fingerprint> entryFingerprints) throws IOException {
+
+		byte[] entries = SuffixArrayIndex.entriesSection ( corpus, entryFingerprints );
+
+		int[] blockStarts = SuffixArrayIndex.blockStarts ( blockTexts, MAX_TEXT_LENGTH );
+		int textLength = blockStarts[blockTexts.size ()];
+
+		byte[] text = SuffixArrayIndex.text ( blockTexts, blockStarts );
+
+		// symbols by byte, in byte order after the end of the text
+		int[] symbols = new int[NUM_OF_BYTES];
+		for (byte textByte : text) { symbols[textByte & BYTE_MASK] = 1; }
+
+		byte[] symbolBytes = new byte[NUM_OF_BYTES + 1];
+		int numOfSymbols = END_SYMBOL + 1;
+
+		for (int textByte = 0; textByte < NUM_OF_BYTES; textByte++) {
+			if (symbols[textByte] != 0) {
+				symbols[textByte] = numOfSymbols;
+				symbolBytes[numOfSymbols++] = (byte) textByte;
+			}
+		}
+
+		int levels = Math.max ( 1, Integer.SIZE - Integer.numberOfLeadingZeros ( numOfSymbols - 1 ) );
+
+		// row 0 is the end of the text, the smallest suffix
+		int[] suffixes = SuffixSorter.suffixArray ( text, textLength );
+		int rows = textLength + 1;
+
+		byte[] transform = new byte[rows];
+		long[] sampledRows = RankBits.newWords ( rows );
+		int numOfSamples = 0;
+
+		for (int row = 0; row < rows; row++) {
+			int position = (row == 0) ? textLength : suffixes[row - 1];
+
+			transform[row] = (byte) ((position == 0) ? END_SYMBOL : symbols[text[position - 1] & BYTE_MASK]);
+
+			if (position % SAMPLE_RATE == 0) {
+				RankBits.set ( sampledRows, row );
+				numOfSamples++;
+			}
+		}
+
+		int[] counts = new int[numOfSymbols + 1];
+		for (byte symbol : transform) { counts[symbol + 1]++; }
+		for (int symbol = 1; symbol <= numOfSymbols; symbol++) { counts[symbol] += counts[symbol - 1]; }
+
+		// header
+		ByteArrayOutputStream headerBytes = new ByteArrayOutputStream ();
+		DataOutputStream header = new DataOutputStream ( headerBytes );
+
+		int[] offsets = new int[NUM_OF_SECTIONS];
+		offsets[1] = entries.length;
+		offsets[2] = offsets[1] + blockStarts.length * INT_BYTES;
+		offsets[3] = offsets[2] + numOfSymbols + counts.length * INT_BYTES;
+		offsets[4] = offsets[3] + WaveletTree.bytes ( rows, levels );
+		offsets[5] = offsets[4] + RankBits.bytes ( rows );
+
+		header.writeInt ( MAGIC );
+		header.writeInt ( VERSION );
+		CacheFiles.writeString ( header, indexType );
+		CacheFiles.writeString ( header, parserName );
+		header.writeInt ( entryFingerprints.size () );
+		header.writeInt ( blockTexts.size () );
+		header.writeInt ( textLength );
+		header.writeInt ( numOfSymbols );
+		header.writeInt ( levels );
+		for (int offset : offsets) { header.writeInt ( offset ); }
+		header.flush ();
+
+		ByteBuffer file = ByteBuffer.allocate ( headerBytes.size () + offsets[5] + numOfSamples * INT_BYTES );
+
+		file.put ( headerBytes.toByteArray () );
+		file.put ( entries );
+		for (int blockStart : blockStarts) { file.putInt ( blockStart ); }
+		file.put ( symbolBytes, 0, numOfSymbols );
+		for (int count : counts) { file.putInt ( count ); }
+		WaveletTree.write ( file, transform, levels );
+		RankBits.write ( file, sampledRows );
+
+		for (int row = 0; row < rows; row++) {
+			int position = (row == 0) ? textLength : suffixes[row - 1];
+
+			if (position % SAMPLE_RATE == 0) { file.putInt ( position ); }
+		}
+
+		file.rewind ();
+
+		return new FmIndex ( file );
+	}
+
+	@Override
+	public void writeTo(FileChannel channel) throws IOException {
+		ByteBuffer toWrite = this.buffer.duplicate ();
+		toWrite.rewind ();
+
+		while (toWrite.hasRemaining ()) { channel.write ( toWrite ); }
+	}
+
+	@Override
+	public String getIndexType() { return this.indexType; }
+
+	@Override
+	public String getParserName() { return this.parserName; }
+
+	@Override
+	public List<Fingerprint> entryFingerprints(List<String> paths) throws IOException {
+		return SuffixArrayIndex.readEntries ( this.buffer, this.entriesStart, this.numOfEntries, paths );
+	}
+
+	/**
+	 * Count the occurrences of a key in the text by backward search, without locating them.
+	 * @param key   the normalized query, as bytes
+	 * @return the number of occurrences
+	 */
+	public int count(byte[] key) {
+		long rows = this.matchingRows ( key );
+
+		return (int) rows - (int) (rows >>> Integer.SIZE);
+	}
+
+	/**
+	 * Find the rows that start with a key by backward search, and locate every one of them in the text, which
+	 * takes up to SAMPLE_RATE LF-mapping steps per occurrence.
+	 */
+	@Override
+	public void forEachMatch(byte[] key, IntConsumer positions) {
+
+		long rows = this.matchingRows ( key );
+
+		for (int row = (int) (rows >>> Integer.SIZE); row < (int) rows; row++) { positions.accept ( this.locate ( row ) ); }
+	}
+
+	@Override
+	public int blockOf(int position) {
+		return SuffixArrayIndex.blockOf ( this.buffer, this.blocksStart, this.numOfBlocks, position );
+	}
+
+	@Override
+	public int blockStart(int blockId) { return this.buffer.getInt ( this.blocksStart + blockId * INT_BYTES ); }
+
+	/*
+	the range of rows whose suffixes start with a key, its first row in the high int and its end in the low int.
+	the range of a suffix of the key is narrowed to the range of the suffix a char longer, from the last char on.
+	 */
+	private long matchingRows(byte[] key) {
+
+		int first = 0;
+		int end = this.textLength + 1;
+
+		for (int i = key.length - 1; i >= 0 && first < end; i--) {
+
+			int symbol = this.symbols[key[i] & BYTE_MASK];
+
+			if (symbol == NO_SYMBOL) { return 0; }
+
+			first = this.counts[symbol] + this.bwt.rank ( symbol, first );
+			end = this.counts[symbol] + this.bwt.rank ( symbol, end );
+		}
+
+		return ((long) first << Integer.SIZE) | Math.max ( first, end );
+	}
+
+	/*
+	the position in the text of the suffix of a row: step to the row of the suffix a char earlier until a row
+	that keeps its position.
+	 */
+	private int locate(int row) {
+
+		int steps = 0;
+
+		while (!this.sampled.get ( row )) {
+			long symbolAndRank = this.bwt.symbolAndRank ( row );
+
+			row = this.counts[(int) (symbolAndRank >>> Integer.SIZE)] + (int) symbolAndRank;
+			steps++;
+		}
+
+		return this.buffer.getInt ( this.samplesStart + this.sampled.rank ( row ) * INT_BYTES ) + steps;
+	}
+}
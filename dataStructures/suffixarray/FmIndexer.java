@@ -0,0 +1,38 @@
+package dataStructures.suffixarray;
+
+import processing.textStructure.Corpus;
+import processing.textStructure.Fingerprint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * A SuffixArrayIndexer that lays out the sorted suffixes as a compressed FmIndex, smaller than the text it
+ * indexes. It answers the same queries from a fraction of the memory of the suffix array, and takes a little
+ * longer to locate every occurrence.
+ */
+public class FmIndexer extends SuffixArrayIndexer {
+
+	public static final IndexTypes TYPE = IndexTypes.FM_INDEX;
+
+	/**
+	 * Basic constructor, sets origin Corpus
+	 * @param origin    the Corpus to be indexed by this DS.
+	 */
+	public FmIndexer(Corpus origin) {
+		super ( origin );
+	}
+
+	@Override
+	protected IndexTypes getIndexType() { return TYPE; }
+
+	@Override
+	protected SubstringIndex readIndex(ByteBuffer buffer) throws IOException { return new FmIndex ( buffer ); }
+
+	@Override
+	protected SubstringIndex buildIndex(List<String> blockTexts, List<Fingerprint> entryFingerprints)
+			throws IOException {
+		return FmIndex.build ( TYPE.name (), this.getParserName (), this.origin, blockTexts, entryFingerprints );
+	}
+}
@@ -0,0 +1,144 @@
+package dataStructures.suffixarray;
+
+import utils.CacheFiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A bit vector with constant time rank, read in place from a buffer. The bits are longs, the lowest bit first,
+ * followed by a directory of the number of set bits before every run of RUN_WORDS longs, so a rank counts at
+ * most RUN_WORDS longs. The directory takes an int per 256 bits.
+ */
+final class RankBits {
+
+	private static final int WORD_BITS = Long.SIZE;
+	private static final int WORD_SHIFT = 6;
+	private static final int RUN_WORDS = 4;
+	private static final int RUN_SHIFT = WORD_SHIFT + 2;
+
+	private final ByteBuffer buffer;
+	private final int wordsStart;
+	private final int directoryStart;
+
+	/**
+	 * Wrap bits written by write(), the buffer is not copied. The directory is checked against the bits once,
+	 * so a rank is never more than the set bits of the vector.
+	 * @param buffer    the buffer
+	 * @param start     the absolute position of the bits in the buffer
+	 * @param length    the number of bits
+	 * @throws IOException if the directory does not count the bits.
+	 */
+	RankBits(ByteBuffer buffer, int start, int length) throws IOException {
+		this.buffer = buffer;
+		this.wordsStart = start;
+		this.directoryStart = start + numOfWords ( length ) * Long.BYTES;
+
+		int ones = 0;
+
+		for (int word = 0; word < numOfWords ( length ); word++) {
+			if (word % RUN_WORDS == 0 && this.run ( word / RUN_WORDS ) != ones) {
+				throw new IOException ( CacheFiles.CORRUPT_FILE_MSG );
+			}
+
+			ones += Long.bitCount ( this.word ( word ) );
+		}
+
+		if (this.run ( numOfRuns ( length ) ) != ones) { throw new IOException ( CacheFiles.CORRUPT_FILE_MSG ); }
+	}
+
+	/**
+	 * @return the number of bytes write() takes for a number of bits
+	 */
+	static int bytes(int length) {
+		return numOfWords ( length ) * Long.BYTES + (numOfRuns ( length ) + 1) * Integer.BYTES;
+	}
+
+	/**
+	 * @return an array that holds a number of bits, for set() and write()
+	 */
+	static long[] newWords(int length) { return new long[numOfWords ( length )]; }
+
+	/**
+	 * Set a bit of an array from newWords()
+	 */
+	static void set(long[] words, int index) { words[index >>> WORD_SHIFT] |= 1L << index; }
+
+	/**
+	 * Write the bits and their directory at the position of a buffer, and advance it.
+	 * @param out   the buffer
+	 * @param words the bits, an array from newWords()
+	 */
+	static void write(ByteBuffer out, long[] words) {
+
+		for (long word : words) { out.putLong ( word ); }
+
+		int ones = 0;
+
+		for (int word = 0; word < words.length; word++) {
+			if (word % RUN_WORDS == 0) { out.putInt ( ones ); }
+
+			ones += Long.bitCount ( words[word] );
+		}
+
+		out.putInt ( ones );
+	}
+
+	/**
+	 * @return the bit at an index
+	 */
+	boolean get(int index) {
+		return (this.word ( index >>> WORD_SHIFT ) & (1L << index)) != 0;
+	}
+
+	/**
+	 * @param end   an index, up to the number of bits
+	 * @return the number of set bits before the index
+	 */
+	int rank(int end) {
+
+		int ones = this.runRank ( end );
+
+		if ((end & (WORD_BITS - 1)) != 0) { ones += Long.bitCount ( this.word ( end >>> WORD_SHIFT ) & ((1L << end) - 1) ); }
+
+		return ones;
+	}
+
+	/**
+	 * Get a bit and the rank before it, reading its long once.
+	 * @param index an index of the bits
+	 * @return the number of set bits before the index shifted left by one, with the bit at the index as the
+	 * lowest bit.
+	 */
+	int rankAndBit(int index) {
+
+		long word = this.word ( index >>> WORD_SHIFT );
+
+		int ones = this.runRank ( index ) + Long.bitCount ( word & ((1L << index) - 1) );
+
+		return (ones << 1) | (int) ((word >>> index) & 1);
+	}
+
+	/*
+	the number of set bits before the long of an index.
+	 */
+	private int runRank(int index) {
+
+		int word = index >>> WORD_SHIFT;
+		int run = index >>> RUN_SHIFT;
+
+		int ones = this.run ( run );
+
+		for (int previous = run * RUN_WORDS; previous < word; previous++) { ones += Long.bitCount ( this.word ( previous ) ); }
+
+		return ones;
+	}
+
+	private long word(int word) { return this.buffer.getLong ( this.wordsStart + word * Long.BYTES ); }
+
+	private int run(int run) { return this.buffer.getInt ( this.directoryStart + run * Integer.BYTES ); }
+
+	private static int numOfWords(int length) { return (length + WORD_BITS - 1) >>> WORD_SHIFT; }
+
+	private static int numOfRuns(int length) { return (numOfWords ( length ) + RUN_WORDS - 1) / RUN_WORDS; }
+}
@@ -0,0 +1,59 @@
+package dataStructures.suffixarray;
+
+import processing.textStructure.Fingerprint;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * A read-only substring index of the normalized text of the blocks of a corpus, which is written to a cache file
+ * and queried in place. The text is the text of every block followed by SuffixArrayIndex.BLOCK_SEPARATOR, and
+ * matches are positions of the text, which map to blocks by the starts of the blocks.
+ */
+public interface SubstringIndex {
+
+	/**
+	 * @return the name of the index type
+	 */
+	String getIndexType();
+
+	/**
+	 * @return the name of the parsing rule the corpus was parsed with
+	 */
+	String getParserName();
+
+	/**
+	 * get the file paths and fingerprints of the entries the index was built from
+	 * @param paths the list the path of every entry, relative to the corpus path, is added to.
+	 * @return the fingerprint of the file of every entry when the index was built
+	 * @throws IOException if the entries do not fit in the index, it is corrupt.
+	 */
+	List<Fingerprint> entryFingerprints(List<String> paths) throws IOException;
+
+	/**
+	 * Write the whole index to a file channel.
+	 * @param channel - a channel open for writing, positioned where the index should start.
+	 */
+	void writeTo(FileChannel channel) throws IOException;
+
+	/**
+	 * Find all the occurrences of a key in the text, in no particular order.
+	 * @param key       the normalized query, as bytes
+	 * @param positions gets the position in the text of every occurrence
+	 */
+	void forEachMatch(byte[] key, IntConsumer positions);
+
+	/**
+	 * @param position - a position of the text
+	 * @return the id of the block whose text holds the position
+	 */
+	int blockOf(int position);
+
+	/**
+	 * @param blockId - the id of a block, or the number of blocks
+	 * @return the position in the text where the text of the block starts, or the length of the text.
+	 */
+	int blockStart(int blockId);
+}
@@ -0,0 +1,424 @@
+package dataStructures.suffixarray;
+
+import processing.textStructure.Corpus;
+import processing.textStructure.Entry;
+import processing.textStructure.Fingerprint;
+import utils.CacheFiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * The read-only suffix array index of a corpus, laid out in a flat binary file format and queried in place.
+ * A freshly built index lives in a heap buffer, an index read from a file lives in a memory mapped buffer.
+ *
+ * The text of the index is the normalized text of every block (see SuffixTreeIndexer.normalize) followed by
+ * BLOCK_SEPARATOR, which no query holds, so a match never spans two blocks. The suffixes of the text are sorted,
+ * so all the suffixes that start with a query are a single range of the suffix array, found by binary search.
+ *
+ * The file is a header followed by sections, all numbers are big-endian:
+ *
+ * header   - MAGIC, VERSION, index type, parser name, the counts of entries and blocks, the length of the text
+ *            and the offset of every section (offsets are relative to the end of the header).
+ * entries  - for every entry its file path relative to the corpus path and the checksum, size, modification
+ *            time and file key of its file.
+ * blocks   - (numOfBlocks + 1) block starts: the position in the text where the text of every block starts,
+ *            then the length of the text. It maps a position of the text to its block.
+ * text     - the text, a byte per char.
+ * suffixes - the suffix array: the position of every suffix of the text, in lexicographic order of the suffixes.
+ * lcp      - the length of the common prefix of every suffix in the suffix array and the one before it, a byte
+ *            each and at most MAX_LCP.
+ *
+ * Six bytes per char of the text in all. Strings are an int length followed by UTF-8 bytes.
+ * When an index is read, its header and the layout of its sections are checked against the size of the buffer.
+ * An index is safe to query from many threads at once: the buffer is only read by absolute index.
+ */
+public class SuffixArrayIndex implements SubstringIndex {
+
+	/** "TSSA" */
+	public static final int MAGIC = 0x54535341;
+	public static final int VERSION = 1;
+
+	/** ends the text of every block */
+	public static final byte BLOCK_SEPARATOR = '\n';
+
+	/** the longest common prefix the lcp section holds, longer ones are cut to it */
+	static final int MAX_LCP = 0xFF;
+
+	private static final int INT_BYTES = Integer.BYTES;
+	private static final int BYTE_MASK = 0xFF;
+	private static final int NUM_OF_SECTIONS = 5;
+	private static final int MAX_TEXT_LENGTH = Integer.MAX_VALUE / (INT_BYTES + 2);
+	// three empty strings and two longs
+	static final int MIN_ENTRY_BYTES = 3 * INT_BYTES + 2 * Long.BYTES;
+
+	private final ByteBuffer buffer;
+
+	private final String indexType;
+	private final String parserName;
+
+	private final int numOfEntries;
+	private final int numOfBlocks;
+	private final int textLength;
+
+	// absolute positions of the sections in the buffer
+	private final int entriesStart;
+	private final int blocksStart;
+	private final int textStart;
+	private final int suffixesStart;
+	private final int lcpStart;
+
+	/**
+	 * Read the header of an index and wrap it, the buffer is not copied.
+	 * @param buffer - a buffer holding a whole index file, positioned at its beginning.
+	 * @throws IOException if the buffer does not hold an index of the supported version, or if the index does
+	 * not fit in the buffer.
+	 */
+	public SuffixArrayIndex(ByteBuffer buffer) throws IOException {
+
+		this.buffer = buffer.duplicate ();
+
+		int position = this.buffer.position ();
+
+		if (this.buffer.remaining () < 2 * INT_BYTES || this.buffer.getInt ( position ) != MAGIC ||
+			this.buffer.getInt ( position + INT_BYTES ) != VERSION) {
+			throw new IOException ( "not a supported index file" );
+		}
+		position += 2 * INT_BYTES;
+
+		this.indexType = CacheFiles.readString ( this.buffer, position );
+		position += CacheFiles.stringSize ( this.indexType );
+		this.parserName = CacheFiles.readString ( this.buffer, position );
+		position += CacheFiles.stringSize ( this.parserName );
+
+		int[] header = new int[3 + NUM_OF_SECTIONS];
+
+		CacheFiles.checkSection ( this.buffer, position, header.length * INT_BYTES );
+		for (int i = 0; i < header.length; i++, position += INT_BYTES) { header[i] = this.buffer.getInt ( position ); }
+
+		// section offsets are relative to the end of the header
+		this.numOfEntries = header[0];
+		this.numOfBlocks = header[1];
+		this.textLength = header[2];
+		this.entriesStart = position + header[3];
+		this.blocksStart = position + header[4];
+		this.textStart = position + header[5];
+		this.suffixesStart = position + header[6];
+		this.lcpStart = position + header[7];
+
+		CacheFiles.checkCounts ( this.numOfEntries, this.numOfBlocks, this.textLength );
+
+		if (this.textLength > MAX_TEXT_LENGTH) { throw new IOException ( CacheFiles.CORRUPT_FILE_MSG ); }
+
+		long[] starts = new long[NUM_OF_SECTIONS];
+		for (int i = 0; i < starts.length; i++) { starts[i] = position + (long) header[3 + i]; }
+
+		CacheFiles.checkSections ( this.buffer, position, starts, new long[] {
+				(long) this.numOfEntries * MIN_ENTRY_BYTES,
+				(this.numOfBlocks + 1L) * INT_BYTES,
+				this.textLength,
+				(long) this.textLength * INT_BYTES,
+				this.textLength } );
+	}
+
+	/**
+	 * Sort the suffixes of the normalized text of the blocks of a corpus and lay out the index in a heap buffer.
+	 * @param indexType         the name of the index type
+	 * @param parserName        the name of the parsing rule the corpus was parsed with
+	 * @param corpus            the corpus
+	 * @param blockTexts        the normalized text of every block of the corpus, in iteration order. Their
+	 *                          indices are the block ids of the index.
+	 * @param entryFingerprints the fingerprint of every entry of the corpus, in iteration order.
+	 * @return the index
+	 */
+	public static SuffixArrayIndex build(String indexType, String parserName, Corpus corpus, List<String> blockTexts,
+										 List<Fingerprint> entryFingerprints) throws IOException {
+
+		byte[] entries = entriesSection ( corpus, entryFingerprints );
+
+		int[] blockStarts = blockStarts ( blockTexts, MAX_TEXT_LENGTH );
+		int textLength = blockStarts[blockTexts.size ()];
+
+		byte[] text = text ( blockTexts, blockStarts );
+
+		int[] suffixes = SuffixSorter.suffixArray ( text, textLength );
+		int[] lcp = SuffixSorter.lcpArray ( text, textLength, suffixes );
+
+		// header
+		ByteArrayOutputStream headerBytes = new ByteArrayOutputStream ();
+		DataOutputStream header = new DataOutputStream ( headerBytes );
+
+		int[] offsets = new int[NUM_OF_SECTIONS];
+		offsets[1] = entries.length;
+		offsets[2] = offsets[1] + blockStarts.length * INT_BYTES;
+		offsets[3] = offsets[2] + textLength;
+		offsets[4] = offsets[3] + textLength * INT_BYTES;
+
+		header.writeInt ( MAGIC );
+		header.writeInt ( VERSION );
+		CacheFiles.writeString ( header, indexType );
+		CacheFiles.writeString ( header, parserName );
+		header.writeInt ( entryFingerprints.size () );
+		header.writeInt ( blockTexts.size () );
+		header.writeInt ( textLength );
+		for (int offset : offsets) { header.writeInt ( offset ); }
+		header.flush ();
+
+		// body, straight to the buffer as the text sections are most of the file
+		ByteBuffer file = ByteBuffer.allocate ( headerBytes.size () + offsets[4] + textLength );
+
+		file.put ( headerBytes.toByteArray () );
+		file.put ( entries );
+		for (int blockStart : blockStarts) { file.putInt ( blockStart ); }
+		file.put ( text );
+		for (int suffix : suffixes) { file.putInt ( suffix ); }
+		for (int common : lcp) { file.put ( (byte) Math.min ( common, MAX_LCP ) ); }
+
+		file.rewind ();
+
+		return new SuffixArrayIndex ( file );
+	}
+
+	@Override
+	public void writeTo(FileChannel channel) throws IOException {
+		ByteBuffer toWrite = this.buffer.duplicate ();
+		toWrite.rewind ();
+
+		while (toWrite.hasRemaining ()) { channel.write ( toWrite ); }
+	}
+
+	@Override
+	public String getIndexType() { return this.indexType; }
+
+	@Override
+	public String getParserName() { return this.parserName; }
+
+	/**
+	 * @return the number of entries the index was built from
+	 */
+	public int numOfEntries() { return this.numOfEntries; }
+
+	/**
+	 * @return the number of blocks in the index
+	 */
+	public int numOfBlocks() { return this.numOfBlocks; }
+
+	@Override
+	public List<Fingerprint> entryFingerprints(List<String> paths) throws IOException {
+		return readEntries ( this.buffer, this.entriesStart, this.numOfEntries, paths );
+	}
+
+	/**
+	 * Find the suffixes that start with a key by binary search, and hand their positions to a consumer.
+	 */
+	@Override
+	public void forEachMatch(byte[] key, IntConsumer positions) {
+
+		int first = this.firstMatch ( key );
+		int end = this.endOfMatches ( first, key );
+
+		for (int match = first; match < end; match++) { positions.accept ( this.suffix ( match ) ); }
+	}
+
+	/**
+	 * Find the first suffix that is not smaller than a key. Each probe of the binary search skips the prefix
+	 * the key is known to share with both ends of the range.
+	 * @param key   the normalized query, as bytes
+	 * @return the suffix array index of the first suffix that starts with the key if there is one
+	 */
+	public int firstMatch(byte[] key) {
+
+		int low = 0;
+		int high = this.textLength;
+		int lowCommon = 0;
+		int highCommon = 0;
+
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+
+			int position = this.suffix ( middle );
+			int common = this.commonPrefix ( position, key, Math.min ( lowCommon, highCommon ) );
+
+			if (common == key.length || (position + common < this.textLength &&
+										 this.charAt ( position + common ) > (key[common] & BYTE_MASK))) {
+				high = middle;
+				highCommon = common;
+			} else {
+				low = middle + 1;
+				lowCommon = common;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Find the end of the range of the suffixes that start with a key, by the common prefixes of neighbouring
+	 * suffixes. Takes a step per match.
+	 * @param first the result of firstMatch() for the key
+	 * @param key   the normalized query, as bytes
+	 * @return the suffix array index after the last suffix that starts with the key, first if there are none.
+	 */
+	public int endOfMatches(int first, byte[] key) {
+
+		if (first == this.textLength || this.commonPrefix ( this.suffix ( first ), key, 0 ) < key.length) {
+			return first;
+		}
+
+		int end = first + 1;
+
+		while (end < this.textLength) {
+			int common = this.buffer.get ( this.lcpStart + end ) & BYTE_MASK;
+
+			if (common < Math.min ( key.length, MAX_LCP ) ||
+				(common == MAX_LCP && this.commonPrefix ( this.suffix ( end ), key, MAX_LCP ) < key.length)) {
+				break;
+			}
+
+			end++;
+		}
+
+		return end;
+	}
+
+	/**
+	 * @param index - an index of the suffix array
+	 * @return the position in the text of the suffix at the index
+	 */
+	public int suffix(int index) { return this.buffer.getInt ( this.suffixesStart + index * INT_BYTES ); }
+
+	@Override
+	public int blockOf(int position) { return blockOf ( this.buffer, this.blocksStart, this.numOfBlocks, position ); }
+
+	@Override
+	public int blockStart(int blockId) { return this.buffer.getInt ( this.blocksStart + blockId * INT_BYTES ); }
+
+	/*
+	extend the known common prefix of the suffix at a position and a key.
+	 */
+	private int commonPrefix(int position, byte[] key, int common) {
+
+		while (common < key.length && position + common < this.textLength &&
+			   this.charAt ( position + common ) == (key[common] & BYTE_MASK)) {
+			common++;
+		}
+
+		return common;
+	}
+
+	private int charAt(int position) { return this.buffer.get ( this.textStart + position ) & BYTE_MASK; }
+
+	/*
+	lay out the entries section: for every entry its relative file path and the fingerprint of its file.
+	 */
+	static byte[] entriesSection(Corpus corpus, List<Fingerprint> entryFingerprints) throws IOException {
+
+		ByteArrayOutputStream entriesBytes = new ByteArrayOutputStream ();
+		DataOutputStream entries = new DataOutputStream ( entriesBytes );
+		int entryNumber = 0;
+
+		for (Entry entry : corpus) {
+			CacheFiles.writeString ( entries, CacheFiles.relativePath ( corpus, entry ) );
+			Fingerprint fingerprint = entryFingerprints.get ( entryNumber++ );
+			CacheFiles.writeString ( entries, fingerprint.getChecksum () );
+			entries.writeLong ( fingerprint.getSize () );
+			entries.writeLong ( fingerprint.getLastModified () );
+			CacheFiles.writeString ( entries, fingerprint.getFileKey () );
+		}
+		entries.flush ();
+
+		return entriesBytes.toByteArray ();
+	}
+
+	/*
+	read the entries section of numOfEntries entries at an absolute position.
+	 */
+	static List<Fingerprint> readEntries(ByteBuffer buffer, int position, int numOfEntries, List<String> paths)
+			throws IOException {
+
+		List<Fingerprint> fingerprints = new ArrayList<> ( numOfEntries );
+
+		for (int entryNumber = 0; entryNumber < numOfEntries; entryNumber++) {
+			String path = CacheFiles.readString ( buffer, position );
+			position += CacheFiles.stringSize ( path );
+			String checksum = CacheFiles.readString ( buffer, position );
+			position += CacheFiles.stringSize ( checksum );
+			CacheFiles.checkSection ( buffer, position, 2 * Long.BYTES );
+			long size = buffer.getLong ( position );
+			long lastModified = buffer.getLong ( position + Long.BYTES );
+			position += 2 * Long.BYTES;
+			String fileKey = CacheFiles.readString ( buffer, position );
+			position += CacheFiles.stringSize ( fileKey );
+
+			paths.add ( path );
+			fingerprints.add ( new Fingerprint ( size, lastModified, fileKey, checksum ) );
+		}
+
+		return fingerprints;
+	}
+
+	/*
+	the start of the text of every block in the text, then the length of the text.
+	 */
+	static int[] blockStarts(List<String> blockTexts, int maxTextLength) throws IOException {
+
+		int[] blockStarts = new int[blockTexts.size () + 1];
+		long length = 0;
+
+		for (int blockId = 0; blockId < blockTexts.size (); blockId++) {
+			blockStarts[blockId] = (int) length;
+			length += blockTexts.get ( blockId ).length () + 1;
+
+			if (length > maxTextLength) { throw new IOException ( "the corpus is too large for this index" ); }
+		}
+
+		blockStarts[blockTexts.size ()] = (int) length;
+
+		return blockStarts;
+	}
+
+	/*
+	the text of the blocks, each followed by BLOCK_SEPARATOR.
+	 */
+	static byte[] text(List<String> blockTexts, int[] blockStarts) {
+
+		byte[] text = new byte[blockStarts[blockTexts.size ()]];
+
+		for (int blockId = 0; blockId < blockTexts.size (); blockId++) {
+			String blockText = blockTexts.get ( blockId );
+
+			for (int i = 0; i < blockText.length (); i++) { text[blockStarts[blockId] + i] = (byte) blockText.charAt ( i ); }
+
+			text[blockStarts[blockId + 1] - 1] = BLOCK_SEPARATOR;
+		}
+
+		return text;
+	}
+
+	/*
+	the last block of a blocks section that starts at or before a position of the text.
+	 */
+	static int blockOf(ByteBuffer buffer, int blocksStart, int numOfBlocks, int position) {
+
+		int low = 0;
+		int high = numOfBlocks - 1;
+
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+
+			if (buffer.getInt ( blocksStart + middle * INT_BYTES ) <= position) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		return low;
+	}
+}
@@ -0,0 +1,189 @@
+package dataStructures.suffixarray;
+
+import dataStructures.Aindexer;
+import dataStructures.suffixtree.SuffixTreeIndexer;
+import processing.parsingRules.IparsingRule;
+import processing.searchStrategies.SuffixArraySearch;
+import processing.textStructure.Block;
+import processing.textStructure.Corpus;
+import processing.textStructure.Entry;
+import processing.textStructure.Fingerprint;
+import utils.CacheFiles;
+import utils.WrongMD5ChecksumException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An indexer that sorts the suffixes of the normalized text of all the blocks of the corpus (the text the
+ * SuffixTreeIndexer puts in its tree) to a SuffixArrayIndex. It answers the same substring queries as the suffix
+ * tree in a fraction of the memory, and is written to a cache file that later runs map instead of sorting again.
+ *
+ * The cache file holds no blocks: when it is read, the corpus is parsed again, which is cheap next to sorting.
+ * Subclasses lay out the sorted suffixes as another SubstringIndex, and share the rest.
+ */
+public class SuffixArrayIndexer extends Aindexer<SuffixArraySearch> {
+
+	public static final IndexTypes TYPE = IndexTypes.SUFFIX_ARRAY;
+	/** By default every available core gets a worker when fingerprinting the files. */
+	public static final int DEFAULT_NUM_OF_WORKERS = Runtime.getRuntime ().availableProcessors ();
+
+	private static final String INDEX_LAYOUT_FAILED = "index layout failed: ";
+
+	private SubstringIndex index;
+
+	// the block ids of the index are the indices of this list
+	private List<Block> blocks;
+
+	/**
+	 * Basic constructor, sets origin Corpus
+	 * @param origin    the Corpus to be indexed by this DS.
+	 */
+	public SuffixArrayIndexer(Corpus origin) {
+		super ( origin );
+	}
+
+	/**
+	 * Map the cache file of the corpus, if there is one and the files of the corpus did not change since it was
+	 * written. Only the files whose size, modification time or file key changed are read to find that out.
+	 * @throws WrongMD5ChecksumException if there is no such cache file.
+	 * @throws IOException if the corpus can not be parsed.
+	 */
+	@Override
+	protected void readIndexedFile() throws IOException, WrongMD5ChecksumException {
+
+		File cacheFile = this.getCacheFile ( this.getIndexType () );
+
+		if (!cacheFile.isFile ()) { throw new WrongMD5ChecksumException (); }
+
+		SubstringIndex cachedIndex;
+
+		try (FileChannel channel = FileChannel.open ( cacheFile.toPath (), StandardOpenOption.READ )) {
+
+			// the mapping stays valid after the channel is closed
+			cachedIndex = this.readIndex ( channel.map ( FileChannel.MapMode.READ_ONLY, 0, channel.size () ) );
+
+		} catch (IOException e) {
+			// not an index file of the current format, or a corrupt one, it will be rebuilt
+			throw new WrongMD5ChecksumException ();
+		}
+
+		if (!this.getIndexType ().name ().equals ( cachedIndex.getIndexType () ) ||
+			!this.getParserName ().equals ( cachedIndex.getParserName () )) {
+			throw new WrongMD5ChecksumException ();
+		}
+
+		List<String> paths = new ArrayList<> ();
+		List<Fingerprint> previousFingerprints;
+
+		try {
+			previousFingerprints = cachedIndex.entryFingerprints ( paths );
+		} catch (IOException e) {
+			// a corrupt index file, it will be rebuilt
+			throw new WrongMD5ChecksumException ();
+		}
+
+		List<String> corpusPaths = new ArrayList<> ();
+		for (Entry entry : this.origin) { corpusPaths.add ( CacheFiles.relativePath ( this.origin, entry ) ); }
+
+		if (!corpusPaths.equals ( paths ) ||
+			!this.origin.getFingerprints ( previousFingerprints, DEFAULT_NUM_OF_WORKERS ).equals ( previousFingerprints )) {
+			throw new WrongMD5ChecksumException ();
+		}
+
+		this.origin.populate ();
+
+		this.index = cachedIndex;
+		this.blocks = this.corpusBlocks ();
+	}
+
+	@Override
+	protected void indexCorpus() {
+
+		this.blocks = this.corpusBlocks ();
+
+		List<String> blockTexts = new ArrayList<> ( this.blocks.size () );
+
+		for (Block block : this.blocks) { blockTexts.add ( SuffixTreeIndexer.normalize ( block.getBytes (), null ) ); }
+
+		try {
+			this.index = this.buildIndex ( blockTexts, this.origin.getFingerprints ( null, DEFAULT_NUM_OF_WORKERS ) );
+		} catch (IOException e) {
+			throw new RuntimeException ( INDEX_LAYOUT_FAILED + e.getMessage () );
+		}
+	}
+
+	/**
+	 * Writes the index of the Corpus to the cache file.
+	 */
+	@Override
+	protected void writeIndexFile() {
+
+		try {
+
+			replaceCacheFile ( this.getCacheFile ( this.getIndexType () ).toPath (), this.index::writeTo );
+
+		} catch (IOException e) {
+			e.printStackTrace ();
+		}
+	}
+
+	/**
+	 * @return the type of this indexer, which names its cache file
+	 */
+	protected IndexTypes getIndexType() { return TYPE; }
+
+	/**
+	 * Wrap an index read from a cache file.
+	 * @param buffer    the mapped cache file
+	 * @return the index
+	 * @throws IOException if the file does not hold an index of this type.
+	 */
+	protected SubstringIndex readIndex(ByteBuffer buffer) throws IOException { return new SuffixArrayIndex ( buffer ); }
+
+	/**
+	 * Lay out the index of the normalized text of the blocks of the corpus.
+	 * @param blockTexts        the normalized text of every block, in corpus order.
+	 * @param entryFingerprints the fingerprint of every entry, in corpus order.
+	 * @return the index
+	 */
+	protected SubstringIndex buildIndex(List<String> blockTexts, List<Fingerprint> entryFingerprints)
+			throws IOException {
+		return SuffixArrayIndex.build ( this.getIndexType ().name (), this.getParserName (), this.origin, blockTexts,
+										entryFingerprints );
+	}
+
+	/*
+	the blocks of all the entries, in corpus order.
+	 */
+	private List<Block> corpusBlocks() {
+
+		List<Block> corpusBlocks = new ArrayList<> ();
+
+		for (Entry currentEntry : this.origin) {
+			for (Block currentBlock : currentEntry) { corpusBlocks.add ( currentBlock ); }
+		}
+
+		return Collections.unmodifiableList ( corpusBlocks );
+	}
+
+	/**
+	 * getter for the IparsingRule obj
+	 * @return IparsingRule
+	 */
+	@Override
+	public IparsingRule getParseRule() { return this.origin.getParsingRule (); }
+
+	/**
+	 * getter for the SuffixArraySearch obj
+	 * @return SuffixArraySearch
+	 */
+	@Override
+	public SuffixArraySearch asSearchInterface() { return new SuffixArraySearch ( this.index, this.blocks ); }
+}
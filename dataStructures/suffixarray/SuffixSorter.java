@@ -0,0 +1,247 @@
+package dataStructures.suffixarray;
+
+import java.util.Arrays;
+
+/**
+ * Builds the suffix array of a text in linear time with SA-IS (induced sorting, Nong, Zhang and Chan), and its
+ * LCP array with Kasai's algorithm.
+ */
+final class SuffixSorter {
+
+	private static final int EMPTY = -1;
+	private static final int BYTE_MASK = 0xFF;
+	private static final int BYTE_ALPHABET = 0x100;
+
+	private SuffixSorter() { }
+
+	/**
+	 * Sort the suffixes of a text.
+	 * @param text      the text, its bytes must not be 0.
+	 * @param length    the length of the text, from the start of the array.
+	 * @return the start of every suffix of the text, in lexicographic order of the suffixes.
+	 */
+	static int[] suffixArray(byte[] text, int length) {
+
+		// the text with a unique smallest sentinel, which is the first suffix and is then dropped
+		int[] string = new int[length + 1];
+		for (int i = 0; i < length; i++) { string[i] = text[i] & BYTE_MASK; }
+
+		int[] suffixes = new int[length + 1];
+
+		sais ( string, suffixes, length + 1, BYTE_ALPHABET );
+
+		return Arrays.copyOfRange ( suffixes, 1, length + 1 );
+	}
+
+	/**
+	 * Get the length of the common prefix of every suffix and the one before it in the suffix array.
+	 * @param text      the text
+	 * @param length    the length of the text
+	 * @param suffixes  the suffix array of the text
+	 * @return the lengths by suffix array index, the first is 0.
+	 */
+	static int[] lcpArray(byte[] text, int length, int[] suffixes) {
+
+		int[] ranks = new int[length];
+		for (int rank = 0; rank < length; rank++) { ranks[suffixes[rank]] = rank; }
+
+		int[] lcp = new int[length];
+
+		// the common prefix of a suffix is at least the one of the suffix starting a char before it, minus one
+		int common = 0;
+
+		for (int position = 0; position < length; position++) {
+
+			int rank = ranks[position];
+
+			if (rank == 0) {
+				common = 0;
+				continue;
+			}
+
+			int previous = suffixes[rank - 1];
+
+			while (position + common < length && previous + common < length &&
+				   text[position + common] == text[previous + common]) {
+				common++;
+			}
+
+			lcp[rank] = common;
+
+			if (common > 0) { common--; }
+		}
+
+		return lcp;
+	}
+
+	/*
+	sort the suffixes of a string whose last symbol is a unique smallest 0, over an alphabet [0, alphabet).
+	The LMS suffixes (an S-type suffix after an L-type one) are sorted by their LMS substrings and, if those are
+	not unique, by recursing on the string of their names. Sorted LMS suffixes then induce the order of all the
+	others.
+	 */
+	private static void sais(int[] string, int[] suffixes, int length, int alphabet) {
+
+		// S-type suffixes are smaller than the next suffix, L-type ones are larger
+		boolean[] sType = new boolean[length];
+		sType[length - 1] = true;
+
+		for (int i = length - 2; i >= 0; i--) {
+			sType[i] = string[i] < string[i + 1] || (string[i] == string[i + 1] && sType[i + 1]);
+		}
+
+		int[] buckets = new int[alphabet];
+
+		// sort the LMS substrings
+		bucketEnds ( string, buckets, length );
+		Arrays.fill ( suffixes, EMPTY );
+
+		for (int i = 1; i < length; i++) {
+			if (isLms ( sType, i )) { suffixes[--buckets[string[i]]] = i; }
+		}
+
+		induceL ( string, suffixes, sType, buckets, length );
+		induceS ( string, suffixes, sType, buckets, length );
+
+		// move the sorted LMS substrings to the front
+		int numOfLms = 0;
+
+		for (int i = 0; i < length; i++) {
+			if (isLms ( sType, suffixes[i] )) { suffixes[numOfLms++] = suffixes[i]; }
+		}
+
+		Arrays.fill ( suffixes, numOfLms, length, EMPTY );
+
+		// name the LMS substrings, equal substrings get the same name. LMS positions are at least 2 apart, so
+		// the name of every position fits at half of it after the sorted substrings.
+		int numOfNames = 0;
+		int previous = EMPTY;
+
+		for (int i = 0; i < numOfLms; i++) {
+
+			int position = suffixes[i];
+
+			if (previous == EMPTY || !equalLmsSubstrings ( string, sType, position, previous )) {
+				numOfNames++;
+				previous = position;
+			}
+
+			suffixes[numOfLms + position / 2] = numOfNames - 1;
+		}
+
+		int[] reduced = new int[numOfLms];
+
+		for (int i = length - 1, j = numOfLms - 1; i >= numOfLms; i--) {
+			if (suffixes[i] != EMPTY) { reduced[j--] = suffixes[i]; }
+		}
+
+		// sort the LMS suffixes by the string of their names
+		int[] reducedSuffixes = new int[numOfLms];
+
+		if (numOfNames < numOfLms) {
+			sais ( reduced, reducedSuffixes, numOfLms, numOfNames );
+		} else {
+			for (int i = 0; i < numOfLms; i++) { reducedSuffixes[reduced[i]] = i; }
+		}
+
+		// map the reduced suffixes back to LMS positions
+		for (int i = 1, j = 0; i < length; i++) {
+			if (isLms ( sType, i )) { reduced[j++] = i; }
+		}
+
+		// induce the order of all the suffixes from the sorted LMS suffixes
+		bucketEnds ( string, buckets, length );
+		Arrays.fill ( suffixes, EMPTY );
+
+		for (int i = numOfLms - 1; i >= 0; i--) {
+			int position = reduced[reducedSuffixes[i]];
+			suffixes[--buckets[string[position]]] = position;
+		}
+
+		induceL ( string, suffixes, sType, buckets, length );
+		induceS ( string, suffixes, sType, buckets, length );
+	}
+
+	/*
+	place the L-type suffixes, from the left end of their buckets, in the order of the suffixes after them.
+	 */
+	private static void induceL(int[] string, int[] suffixes, boolean[] sType, int[] buckets, int length) {
+
+		bucketStarts ( string, buckets, length );
+
+		for (int i = 0; i < length; i++) {
+			int before = suffixes[i] - 1;
+
+			if (before >= 0 && !sType[before]) { suffixes[buckets[string[before]]++] = before; }
+		}
+	}
+
+	/*
+	place the S-type suffixes, from the right end of their buckets, in the order of the suffixes after them.
+	 */
+	private static void induceS(int[] string, int[] suffixes, boolean[] sType, int[] buckets, int length) {
+
+		bucketEnds ( string, buckets, length );
+
+		for (int i = length - 1; i >= 0; i--) {
+			int before = suffixes[i] - 1;
+
+			if (before >= 0 && sType[before]) { suffixes[--buckets[string[before]]] = before; }
+		}
+	}
+
+	/*
+	true if two LMS substrings, from an LMS position up to the next one, have the same symbols and types.
+	 */
+	private static boolean equalLmsSubstrings(int[] string, boolean[] sType, int first, int second) {
+
+		for (int offset = 0; ; offset++) {
+
+			if (string[first + offset] != string[second + offset] ||
+				sType[first + offset] != sType[second + offset]) {
+				return false;
+			}
+
+			if (offset > 0 && (isLms ( sType, first + offset ) || isLms ( sType, second + offset ))) {
+				return true;
+			}
+		}
+	}
+
+	private static boolean isLms(boolean[] sType, int position) {
+		return position > 0 && sType[position] && !sType[position - 1];
+	}
+
+	/*
+	set every bucket to the index where the suffixes starting with its symbol start.
+	 */
+	private static void bucketStarts(int[] string, int[] buckets, int length) {
+		countSymbols ( string, buckets, length );
+
+		int sum = 0;
+		for (int symbol = 0; symbol < buckets.length; symbol++) {
+			int count = buckets[symbol];
+			buckets[symbol] = sum;
+			sum += count;
+		}
+	}
+
+	/*
+	set every bucket to the index after the last suffix starting with its symbol.
+	 */
+	private static void bucketEnds(int[] string, int[] buckets, int length) {
+		countSymbols ( string, buckets, length );
+
+		int sum = 0;
+		for (int symbol = 0; symbol < buckets.length; symbol++) {
+			sum += buckets[symbol];
+			buckets[symbol] = sum;
+		}
+	}
+
+	private static void countSymbols(int[] string, int[] buckets, int length) {
+		Arrays.fill ( buckets, 0 );
+
+		for (int i = 0; i < length; i++) { buckets[string[i]]++; }
+	}
+}
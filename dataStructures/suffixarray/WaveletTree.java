@@ -0,0 +1,162 @@
+package dataStructures.suffixarray;
+
+import utils.CacheFiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A wavelet tree of a sequence of small symbols, read in place from a buffer. It answers how many times a symbol
+ * occurs before an index with a rank per level, and takes a bit per symbol per level.
+ *
+ * The tree is laid out level by level (the layout known as a wavelet matrix): a level holds one bit of every
+ * symbol, the highest bit first, and the next level orders the symbols stably by that bit, those with 0 first.
+ * A level is the number of 0 bits in it, followed by its RankBits.
+ */
+final class WaveletTree {
+
+	private final int length;
+	private final int levels;
+	private final int[] zeros;
+	private final RankBits[] bits;
+
+	// where the symbols are after the last level, by symbol
+	private final int[] bottomStarts;
+
+	/**
+	 * Wrap a tree written by write(), the buffer is not copied.
+	 * @param buffer    the buffer
+	 * @param start     the absolute position of the tree in the buffer
+	 * @param length    the length of the sequence
+	 * @param levels    the number of bits of a symbol
+	 * @throws IOException if the count of the 0 bits of a level is wrong.
+	 */
+	WaveletTree(ByteBuffer buffer, int start, int length, int levels) throws IOException {
+
+		this.length = length;
+		this.levels = levels;
+		this.zeros = new int[levels];
+		this.bits = new RankBits[levels];
+
+		int position = start;
+
+		for (int level = 0; level < levels; level++) {
+			this.zeros[level] = buffer.getInt ( position );
+			this.bits[level] = new RankBits ( buffer, position + Integer.BYTES, length );
+
+			if (this.zeros[level] != length - this.bits[level].rank ( length )) {
+				throw new IOException ( CacheFiles.CORRUPT_FILE_MSG );
+			}
+
+			position += levelBytes ( length );
+		}
+
+		this.bottomStarts = new int[1 << levels];
+
+		for (int symbol = 0; symbol < this.bottomStarts.length; symbol++) {
+			this.bottomStarts[symbol] = this.descend ( symbol, 0 );
+		}
+	}
+
+	/**
+	 * @return the number of bytes write() takes for a sequence
+	 */
+	static int bytes(int length, int levels) { return levels * levelBytes ( length ); }
+
+	/**
+	 * Write the tree of a sequence at the position of a buffer, and advance it.
+	 * @param out       the buffer
+	 * @param symbols   the sequence, every symbol fits in the given number of bits
+	 * @param levels    the number of bits of a symbol
+	 */
+	static void write(ByteBuffer out, byte[] symbols, int levels) {
+
+		byte[] current = symbols.clone ();
+		byte[] next = new byte[current.length];
+
+		for (int level = 0; level < levels; level++) {
+
+			int shift = levels - 1 - level;
+			long[] words = RankBits.newWords ( current.length );
+			int numOfZeros = 0;
+
+			for (int i = 0; i < current.length; i++) {
+				if (((current[i] >>> shift) & 1) == 0) {
+					numOfZeros++;
+				} else {
+					RankBits.set ( words, i );
+				}
+			}
+
+			out.putInt ( numOfZeros );
+			RankBits.write ( out, words );
+
+			// stable partition by the bit of the level
+			int zero = 0;
+			int one = numOfZeros;
+
+			for (byte symbol : current) {
+				if (((symbol >>> shift) & 1) == 0) {
+					next[zero++] = symbol;
+				} else {
+					next[one++] = symbol;
+				}
+			}
+
+			byte[] swap = current;
+			current = next;
+			next = swap;
+		}
+	}
+
+	/**
+	 * @param symbol    a symbol
+	 * @param end       an index, up to the length of the sequence
+	 * @return the number of times the symbol occurs before the index
+	 */
+	int rank(int symbol, int end) { return this.descend ( symbol, end ) - this.bottomStarts[symbol]; }
+
+	/**
+	 * Get the symbol at an index and the number of times it occurs before the index, in a single descent.
+	 * @param index an index of the sequence
+	 * @return the symbol in the high int and the rank in the low int
+	 */
+	long symbolAndRank(int index) {
+
+		int symbol = 0;
+
+		for (int level = 0; level < this.levels; level++) {
+			int rankAndBit = this.bits[level].rankAndBit ( index );
+			int ones = rankAndBit >>> 1;
+
+			if ((rankAndBit & 1) != 0) {
+				symbol = (symbol << 1) | 1;
+				index = this.zeros[level] + ones;
+			} else {
+				symbol <<= 1;
+				index = index - ones;
+			}
+		}
+
+		return ((long) symbol << Integer.SIZE) | (index - this.bottomStarts[symbol]);
+	}
+
+	/*
+	follow an index of the sequence down the levels along the bits of a symbol. the symbols before the index that
+	equal the symbol stay right before it at every level.
+	 */
+	private int descend(int symbol, int index) {
+
+		for (int level = 0; level < this.levels; level++) {
+			if (((symbol >>> (this.levels - 1 - level)) & 1) != 0) {
+				index = this.zeros[level] + this.bits[level].rank ( index );
+			} else {
+				index = index - this.bits[level].rank ( index );
+			}
+		}
+
+		return index;
+	}
+
+	private static int levelBytes(int length) { return Integer.BYTES + RankBits.bytes ( length ); }
+}
@@ -15,6 +15,7 @@
  */
 package dataStructures.suffixtree;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -50,22 +51,50 @@ import java.util.Collections;
  * the labels of the edges starting from the last node of the path.
  *
  * This kind of "implicit path" is important in the testAndSplit method.
+ *
+ * The keys are appended to a single shared buffer, and every string the construction works on (edge labels,
+ * the active string and the remainder of the key) is a (start, end) pair of indices into it, so putting a key
+ * copies it once and allocates nothing per character. The nodes, their edges and their values are kept in the
+ * parallel arrays of a NodeStore, where a node is an int.
+ * The keys may only hold ASCII characters.
  *  
  */
 public class GeneralizedSuffixTree {
 
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
     /**
      * The index of the last item that was added to the GST
      */
     private int last = 0;
+    /**
+     * The nodes of the suffix tree
+     */
+    private final NodeStore nodes = new NodeStore();
     /**
      * The root of the suffix tree
      */
-    private final Node root = new Node();
+    private final int root = NodeStore.ROOT;
     /**
      * The last leaf that was added during the update operation
      */
-    private Node activeLeaf = root;
+    private int activeLeaf = root;
+    /**
+     * The keys that were added, one after the other. Edge labels are ranges of it.
+     */
+    private byte[] text = new byte[INITIAL_CAPACITY];
+    private int textLength = 0;
+
+    /*
+     * The results of the construction steps, kept in fields instead of a pair object per call:
+     * canonize sets the node and the start of the remaining string (which ends where its input ends),
+     * testAndSplit sets whether the string it tested is in the tree, and update sets the active point.
+     */
+    private int canonizedNode;
+    private int canonizedStart;
+    private boolean endpoint;
+    private int activeNode;
+    private int activeStart;
 
     /**
      * Searches for the given word within the GST.
@@ -88,11 +117,11 @@ public class GeneralizedSuffixTree {
      * @return at most <tt>results</tt> values for the given word
      */
     public Collection<Integer> search(String word, int results) {
-        Node tmpNode = searchNode(word);
-        if (tmpNode == null) {
+        int tmpNode = searchNode(word);
+        if (tmpNode == NodeStore.NONE) {
             return Collections.EMPTY_LIST;
         }
-        return tmpNode.getData(results);
+        return nodes.getData(tmpNode, results);
     }
 
     /**
@@ -104,52 +133,89 @@ public class GeneralizedSuffixTree {
      * @see GeneralizedSuffixTree ResultInfo
      */
     public ResultInfo searchWithCount(String word, int to) {
-        Node tmpNode = searchNode(word);
-        if (tmpNode == null) {
+        int tmpNode = searchNode(word);
+        if (tmpNode == NodeStore.NONE) {
             return new ResultInfo(Collections.EMPTY_LIST, 0);
         }
 
-        return new ResultInfo(tmpNode.getData(to), tmpNode.getResultCount());
+        return new ResultInfo(nodes.getData(tmpNode, to), nodes.getResultCount(tmpNode));
+    }
+
+    /**
+     * Visits every occurrence of the given word within the keys, in no particular order. This takes O(m + occ)
+     * time, where occ is the number of occurrences.
+     *
+     * Every key must end with a char that occurs nowhere else in it nor in the word. Every suffix of such a key is
+     * a node of the tree that holds the index of the key, so the occurrences of the word are the values of the
+     * node of the word and of the nodes below it, and the depth of a node is the length of its suffix.
+     *
+     * @param word the string to search for
+     * @param visitor gets the index of the key and the length of the suffix of the key that starts with the
+     *                word, for every occurrence
+     */
+    public void searchOccurrences(String word, OccurrenceVisitor visitor) {
+        int[] depth = new int[1];
+        int tmpNode = searchNode(word, depth);
+        if (tmpNode != NodeStore.NONE) {
+            nodes.visitValues(tmpNode, depth[0], visitor);
+        }
+    }
+
+    /**
+     * Returns the tree node (if present) that corresponds to the given string, or NodeStore.NONE.
+     */
+    private int searchNode(String word) {
+        return searchNode(word, null);
     }
 
     /**
-     * Returns the tree node (if present) that corresponds to the given string.
+     * Returns the tree node (if present) that corresponds to the given string, or NodeStore.NONE, and sets the
+     * first item of depth (unless it is null) to the length of the labels from the root down to the node.
      */
-    private Node searchNode(String word) {
+    private int searchNode(String word, int[] depth) {
         /*
          * Verifies if exists a path from the root to a node such that the concatenation
          * of all the labels on the path is a superstring of the given word.
          * If such a path is found, the last node on it is returned.
          */
-        Node currentNode = root;
-        Edge currentEdge;
+        int currentNode = root;
+        int currentEdge;
 
         for (int i = 0; i < word.length(); ++i) {
             char ch = word.charAt(i);
-            // follow the edge corresponding to this char
-            currentEdge = currentNode.getEdge(ch);
-            if (null == currentEdge) {
+            if (ch != (char) (byte) ch) {
+                // the keys only hold ASCII characters
+                return NodeStore.NONE;
+            }
+            // follow the edge corresponding to this char, it leads to the child node
+            currentEdge = nodes.getChild(currentNode, (byte) ch);
+            if (NodeStore.NONE == currentEdge) {
                 // there is no edge starting with this char
-                return null;
+                return NodeStore.NONE;
             } else {
-                String label = currentEdge.getLabel();
-                int lenToMatch = Math.min(word.length() - i, label.length());
-                if (!word.regionMatches(i, label, 0, lenToMatch)) {
-                    // the label on the edge does not correspond to the one in the string to processing.searchStrategies
-                    return null;
+                int labelLength = nodes.getLabelLength(currentEdge);
+                int lenToMatch = Math.min(word.length() - i, labelLength);
+                for (int j = 0; j < lenToMatch; j++) {
+                    if (word.charAt(i + j) != charAt(nodes.getLabelStart(currentEdge) + j)) {
+                        // the label on the edge does not correspond to the one in the string to search
+                        return NodeStore.NONE;
+                    }
                 }
 
-                if (label.length() >= word.length() - i) {
-                    return currentEdge.getDest();
+                if (labelLength >= word.length() - i) {
+                    if (depth != null) {
+                        depth[0] = i + labelLength;
+                    }
+                    return currentEdge;
                 } else {
                     // advance to next node
-                    currentNode = currentEdge.getDest();
+                    currentNode = currentEdge;
                     i += lenToMatch - 1;
                 }
             }
         }
 
-        return null;
+        return NodeStore.NONE;
     }
 
     /**
@@ -161,6 +227,7 @@ public class GeneralizedSuffixTree {
      * @param key the string key that will be added to the index
      * @param index the value that will be added to the index
      * @throws IllegalStateException if an invalid index is passed as input
+     * @throws IllegalArgumentException if the key holds a character that is not ASCII
      */
     public void put(String key, int index) throws IllegalStateException {
         if (index < last) {
@@ -169,34 +236,33 @@ public class GeneralizedSuffixTree {
             last = index;
         }
 
+        int keyStart = textLength;
+        append(key);
+        int keyEnd = textLength;
+
         // reset activeLeaf
         activeLeaf = root;
 
-        String remainder = key;
-        Node s = root;
+        int s = root;
 
         // proceed with tree construction (closely related to procedure in
         // Ukkonen's paper)
-        String text = "";
+        // the active string is [textStart, i) before char i is added, and [textStart, i + 1) after
+        int textStart = keyStart;
         // iterate over the string, one char at a time
-        for (int i = 0; i < remainder.length(); i++) {
-            // line 6
-            text += remainder.charAt(i);
-            // use intern to make sure the resulting string is in the pool.
-            text = text.intern();
-
+        for (int i = keyStart; i < keyEnd; i++) {
             // line 7: update the tree with the new transitions due to this new char
-            Pair<Node, String> active = update(s, text, remainder.substring(i), index);
+            update(s, textStart, i + 1, i, keyEnd, index);
             // line 8: make sure the active pair is canonical
-            active = canonize(active.getFirst(), active.getSecond());
-            
-            s = active.getFirst();
-            text = active.getSecond();
+            canonize(activeNode, activeStart, i + 1);
+
+            s = canonizedNode;
+            textStart = canonizedStart;
         }
 
         // add leaf suffix link, is necessary
-        if (null == activeLeaf.getSuffix() && activeLeaf != root && activeLeaf != s) {
-            activeLeaf.setSuffix(s);
+        if (NodeStore.NONE == nodes.getSuffix(activeLeaf) && activeLeaf != root && activeLeaf != s) {
+            nodes.setSuffix(activeLeaf, s);
         }
 
     }
@@ -211,212 +277,264 @@ public class GeneralizedSuffixTree {
      * Then g will be split in two different edges, one having $end as label, and the other one
      * having rest as label.
      *
+     * Sets endpoint to true/false depending on whether (stringPart + t) is contained in the subtree starting
+     * in inputs.
+     *
      * @param inputs the starting node
-     * @param stringPart the string to processing.searchStrategies
+     * @param partStart the start of stringPart, the string to search
+     * @param partEnd the end of stringPart
      * @param t the following character
-     * @param remainder the remainder of the string to add to the index
+     * @param restStart the start of the remainder of the string to add to the index
+     * @param restEnd the end of the remainder
      * @param value the value to add to the index
-     * @return a pair containing
-     *                  true/false depending on whether (stringPart + t) is contained in the subtree starting in inputs
-     *                  the last node that can be reached by following the path denoted by stringPart starting from inputs
-     *         
+     * @return the last node that can be reached by following the path denoted by stringPart starting from inputs
      */
-    private Pair<Boolean, Node> testAndSplit(final Node inputs, final String stringPart, final char t, final String remainder, final int value) {
+    private int testAndSplit(final int inputs, final int partStart, final int partEnd, final char t,
+                              final int restStart, final int restEnd, final int value) {
         // descend the tree as far as possible
-        Pair<Node, String> ret = canonize(inputs, stringPart);
-        Node s = ret.getFirst();
-        String str = ret.getSecond();
+        canonize(inputs, partStart, partEnd);
+        int s = canonizedNode;
+        int strLength = partEnd - canonizedStart;
 
-        if (!"".equals(str)) {
-            Edge g = s.getEdge(str.charAt(0));
+        if (strLength > 0) {
+            int g = nodes.getChild(s, text[canonizedStart]);
+            int gStart = nodes.getLabelStart(g);
 
-            String label = g.getLabel();
             // must see whether "str" is substring of the label of an edge
-            if (label.length() > str.length() && label.charAt(str.length()) == t) {
-                return new Pair<Boolean, Node>(true, s);
+            if (nodes.getLabelLength(g) > strLength && charAt(gStart + strLength) == t) {
+                endpoint = true;
+                return s;
             } else {
-                // need to split the edge
-                String newlabel = label.substring(str.length());
-                assert (label.startsWith(str));
-
-                // build a new node
-                Node r = new Node();
-                // build a new edge
-                Edge newedge = new Edge(str, r);
-
-                g.setLabel(newlabel);
+                // need to split the edge, its label starts with str
+                // build a new node, with a new edge
+                int r = nodes.newNode(gStart, gStart + strLength, text[gStart]);
 
                 // link s -> r
-                r.addEdge(newlabel.charAt(0), g);
-                s.addEdge(str.charAt(0), newedge);
+                nodes.replaceChild(s, g, r);
+
+                nodes.setLabelStart(g, gStart + strLength, text[gStart + strLength]);
+                nodes.addChild(r, g);
 
-                return new Pair<Boolean, Node>(false, r);
+                endpoint = false;
+                return r;
             }
 
         } else {
-            Edge e = s.getEdge(t);
-            if (null == e) {
+            int e = nodes.getChild(s, (byte) t);
+            if (NodeStore.NONE == e) {
                 // if there is no t-transtion from s
-                return new Pair<Boolean, Node>(false, s);
-            } else {
-                if (remainder.equals(e.getLabel())) {
-                    // update payload of destination node
-                    e.getDest().addRef(value);
-                    return new Pair<Boolean, Node>(true, s);
-                } else if (remainder.startsWith(e.getLabel())) {
-                    return new Pair<Boolean, Node>(true, s);
-                } else if (e.getLabel().startsWith(remainder)) {
-                    // need to split as above
-                    Node newNode = new Node();
-                    newNode.addRef(value);
-
-                    Edge newEdge = new Edge(remainder, newNode);
-
-                    e.setLabel(e.getLabel().substring(remainder.length()));
-
-                    newNode.addEdge(e.getLabel().charAt(0), e);
-
-                    s.addEdge(t, newEdge);
+                endpoint = false;
+                return s;
+            }
 
-                    return new Pair<Boolean, Node>(false, s);
-                } else {
-                    // they are different words. No prefix. but they may still share some common substr
-                    return new Pair<Boolean, Node>(true, s);
-                }
+            int restLength = restEnd - restStart;
+            int eStart = nodes.getLabelStart(e);
+            int labelLength = nodes.getLabelLength(e);
+            int common = commonPrefix(restStart, eStart, Math.min(restLength, labelLength));
+
+            if (common == restLength && restLength == labelLength) {
+                // update payload of destination node
+                addRef(e, value);
+                endpoint = true;
+            } else if (common == labelLength && restLength > labelLength) {
+                // the remainder starts with the label
+                endpoint = true;
+            } else if (common == restLength) {
+                // the label starts with the remainder, need to split as above
+                int newNode = nodes.newNode(eStart, eStart + restLength, text[eStart]);
+                addRef(newNode, value);
+
+                nodes.replaceChild(s, e, newNode);
+
+                nodes.setLabelStart(e, eStart + restLength, text[eStart + restLength]);
+                nodes.addChild(newNode, e);
+
+                endpoint = false;
+            } else {
+                // they are different words. No prefix. but they may still share some common substr
+                endpoint = true;
             }
+            return s;
         }
 
     }
 
     /**
-     * Return a (Node, String) (n, remainder) pair such that n is a farthest descendant of
+     * Sets canonizedNode and canonizedStart such that canonizedNode is a farthest descendant of
      * s (the input node) that can be reached by following a path of edges denoting
-     * a prefix of inputstr and remainder will be string that must be
-     * appended to the concatenation of labels from s to n to get inpustr.
+     * a prefix of the input string and [canonizedStart, end) is the string that must be
+     * appended to the concatenation of labels from s to canonizedNode to get the input string.
+     * The input string is known to be in the tree, so an edge is followed by its length alone.
      */
-    private Pair<Node, String> canonize(final Node s, final String inputstr) {
+    private void canonize(final int s, final int start, final int end) {
 
-        if ("".equals(inputstr)) {
-            return new Pair<Node, String>(s, inputstr);
-        } else {
-            Node currentNode = s;
-            String str = inputstr;
-            Edge g = s.getEdge(str.charAt(0));
+        int currentNode = s;
+        int current = start;
+
+        if (current < end) {
+            int g = nodes.getChild(s, text[current]);
             // descend the tree as long as a proper label is found
-            while (g != null && str.startsWith(g.getLabel())) {
-                str = str.substring(g.getLabel().length());
-                currentNode = g.getDest();
-                if (str.length() > 0) {
-                    g = currentNode.getEdge(str.charAt(0));
-                }
+            while (g != NodeStore.NONE && nodes.getLabelLength(g) <= end - current) {
+                current += nodes.getLabelLength(g);
+                currentNode = g;
+                g = (current < end) ? nodes.getChild(currentNode, text[current]) : NodeStore.NONE;
             }
-
-            return new Pair<Node, String>(currentNode, str);
         }
+
+        canonizedNode = currentNode;
+        canonizedStart = current;
     }
 
     /**
      * Updates the tree starting from inputNode and by adding stringPart.
      * 
-     * Returns a reference (Node, String) pair for the string that has been added so far.
+     * Sets the active point (activeNode, activeStart) for the string that has been added so far.
      * This means:
      * - the Node will be the Node that can be reached by the longest path string (S1)
      *   that can be obtained by concatenating consecutive edges in the tree and
      *   that is a substring of the string added so far to the tree.
-     * - the String will be the remainder that must be added to S1 to get the string
+     * - [activeStart, partEnd) will be the remainder that must be added to S1 to get the string
      *   added so far.
      * 
      * @param inputNode the node to start from
-     * @param stringPart the string to add to the tree
-     * @param rest the rest of the string
+     * @param partStart the start of stringPart, the string to add to the tree
+     * @param partEnd the end of stringPart
+     * @param restStart the start of the rest of the string
+     * @param restEnd the end of the rest of the string
      * @param value the value to add to the index
      */
-    private Pair<Node, String> update(final Node inputNode, final String stringPart, final String rest, final int value) {
-        Node s = inputNode;
-        String tempstr = stringPart;
-        char newChar = stringPart.charAt(stringPart.length() - 1);
+    private void update(final int inputNode, final int partStart, final int partEnd, final int restStart,
+                        final int restEnd, final int value) {
+        int s = inputNode;
+        int tempStart = partStart;
+        char newChar = charAt(partEnd - 1);
 
         // line 1
-        Node oldroot = root;
+        int oldroot = root;
 
         // line 1b
-        Pair<Boolean, Node> ret = testAndSplit(s, tempstr.substring(0, tempstr.length() - 1), newChar, rest, value);
+        int r = testAndSplit(s, tempStart, partEnd - 1, newChar, restStart, restEnd, value);
 
-        Node r = ret.getSecond();
-        boolean endpoint = ret.getFirst();
-
-        Node leaf;
+        int leaf;
         // line 2
         while (!endpoint) {
             // line 3
-            Edge tempEdge = r.getEdge(newChar);
-            if (null != tempEdge) {
+            int tempEdge = nodes.getChild(r, (byte) newChar);
+            if (NodeStore.NONE != tempEdge) {
                 // such a node is already present. This is one of the main differences from Ukkonen's case:
                 // the tree can contain deeper nodes at this stage because different strings were added by previous iterations.
-                leaf = tempEdge.getDest();
+                leaf = tempEdge;
             } else {
-                // must build a new leaf
-                leaf = new Node();
-                leaf.addRef(value);
-                Edge newedge = new Edge(rest, leaf);
-                r.addEdge(newChar, newedge);
+                // must build a new leaf, with a new edge
+                leaf = nodes.newNode(restStart, restEnd, (byte) newChar);
+                addRef(leaf, value);
+                nodes.addChild(r, leaf);
             }
 
             // update suffix link for newly created leaf
             if (activeLeaf != root) {
-                activeLeaf.setSuffix(leaf);
+                nodes.setSuffix(activeLeaf, leaf);
             }
             activeLeaf = leaf;
 
             // line 4
             if (oldroot != root) {
-                oldroot.setSuffix(r);
+                nodes.setSuffix(oldroot, r);
             }
 
             // line 5
             oldroot = r;
 
             // line 6
-            if (null == s.getSuffix()) { // root node
+            if (NodeStore.NONE == nodes.getSuffix(s)) { // root node
                 assert (root == s);
                 // this is a special case to handle what is referred to as node _|_ on the paper
-                tempstr = tempstr.substring(1);
+                tempStart++;
             } else {
-                Pair<Node, String> canret = canonize(s.getSuffix(), safeCutLastChar(tempstr));
-                s = canret.getFirst();
-                // use intern to ensure that tempstr is a reference from the string pool
-                tempstr = (canret.getSecond() + tempstr.charAt(tempstr.length() - 1)).intern();
+                canonize(nodes.getSuffix(s), tempStart, safeCutLastChar(tempStart, partEnd));
+                s = canonizedNode;
+                // the remainder keeps the last char
+                tempStart = canonizedStart;
             }
 
             // line 7
-            ret = testAndSplit(s, safeCutLastChar(tempstr), newChar, rest, value);
-            r = ret.getSecond();
-            endpoint = ret.getFirst();
+            r = testAndSplit(s, tempStart, safeCutLastChar(tempStart, partEnd), newChar, restStart, restEnd, value);
 
         }
 
         // line 8
         if (oldroot != root) {
-            oldroot.setSuffix(r);
+            nodes.setSuffix(oldroot, r);
         }
-        oldroot = root;
 
-        return new Pair<Node, String>(s, tempstr);
+        activeNode = s;
+        activeStart = tempStart;
+    }
+
+    /*
+     * Adds the given value to the node and to all its suffixes, which hold it too unless they did before.
+     */
+    private void addRef(int node, int value) {
+        for (int iter = node; iter != NodeStore.NONE && nodes.addValue(iter, value); iter = nodes.getSuffix(iter)) {
+            // the value is added by the loop condition
+        }
     }
 
-    Node getRoot() {
-        return root;
+    /*
+     * the end of a string without its last char, an empty string stays empty.
+     */
+    private int safeCutLastChar(int start, int end) {
+        return Math.max(start, end - 1);
     }
 
-    private String safeCutLastChar(String seq) {
-        if (seq.length() == 0) {
-            return "";
+    /*
+     * the length of the common prefix of two ranges of the text, up to a maximal length.
+     */
+    private int commonPrefix(int first, int second, int maxLength) {
+        int length = 0;
+        while (length < maxLength && text[first + length] == text[second + length]) {
+            length++;
+        }
+        return length;
+    }
+
+    private char charAt(int index) {
+        return (char) text[index];
+    }
+
+    /*
+     * append a key to the text, growing it as needed.
+     */
+    private void append(String key) {
+        if (textLength + key.length() > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + key.length()));
+        }
+
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c != (char) (byte) c) {
+                throw new IllegalArgumentException("Illegal input character " + c + "");
+            }
+            text[textLength + i] = (byte) c;
         }
-        return seq.substring(0, seq.length() - 1);
+
+        textLength += key.length();
     }
 
     public int computeCount() {
-        return root.computeAndCacheCount();
+        return nodes.computeAndCacheCount();
+    }
+
+    /**
+     * Gets the occurrences of a word found by searchOccurrences.
+     */
+    public interface OccurrenceVisitor {
+
+        /**
+         * @param index the index the key holding the occurrence was put with
+         * @param suffixLength the length of the suffix of the key that starts with the occurrence
+         */
+        void visit(int index, int suffixLength);
     }
 
     /**
@@ -440,26 +558,4 @@ public class GeneralizedSuffixTree {
             this.results = results;
         }
     }
-
-    /**
-     * A private class used to return a tuples of two elements
-     */
-    private class Pair<A, B> {
-
-        private final A first;
-        private final B second;
-
-        public Pair(A first, B second) {
-            this.first = first;
-            this.second = second;
-        }
-
-        public A getFirst() {
-            return first;
-        }
-
-        public B getSecond() {
-            return second;
-        }
-    }
 }
@@ -0,0 +1,321 @@
+package dataStructures.suffixtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The nodes of a GeneralizedSuffixTree as a structure of parallel primitive arrays. A node is its index in the
+ * arrays, the root is node 0.
+ *
+ * Every node but the root has a single incoming edge, so the label of that edge (a range of the text of the
+ * tree, and its first char) is kept with the node it leads to. The children of a node are a list linked by
+ * first-child and next-sibling indices. The values of all the nodes are lists linked in one shared pool,
+ * newest value first.
+ */
+class NodeStore {
+
+	/** no node, or no value */
+	static final int NONE = -1;
+	static final int ROOT = 0;
+
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	// the arrays grow by half, as the slack of a large tree costs more than the copies
+	private static final int GROWTH_SHIFT = 1;
+
+	// by node
+	private int[] firstChild;
+	private int[] nextSibling;
+	private int[] labelStart;
+	private int[] labelEnd;
+	private byte[] firstChar;
+	private int[] suffix;
+	private int[] firstValue;
+	private int[] resultCount;
+	private int size = 0;
+
+	// the value pool
+	private int[] values;
+	private int[] nextValue;
+	private int valuesSize = 0;
+
+	/**
+	 * constructor of a store holding only the root
+	 */
+	NodeStore() {
+		this.firstChild = new int[INITIAL_CAPACITY];
+		this.nextSibling = new int[INITIAL_CAPACITY];
+		this.labelStart = new int[INITIAL_CAPACITY];
+		this.labelEnd = new int[INITIAL_CAPACITY];
+		this.firstChar = new byte[INITIAL_CAPACITY];
+		this.suffix = new int[INITIAL_CAPACITY];
+		this.firstValue = new int[INITIAL_CAPACITY];
+		this.values = new int[INITIAL_CAPACITY];
+		this.nextValue = new int[INITIAL_CAPACITY];
+
+		this.newNode ( 0, 0, (byte) 0 );
+	}
+
+	/**
+	 * Add a node with no children, suffix link nor values.
+	 * @param start the start of the label of its incoming edge in the text of the tree
+	 * @param end   the end of the label, exclusive
+	 * @param first the first char of the label
+	 * @return the new node
+	 */
+	int newNode(int start, int end, byte first) {
+
+		if (this.size == this.firstChild.length) { this.growNodes (); }
+
+		int node = this.size++;
+
+		this.firstChild[node] = NONE;
+		this.nextSibling[node] = NONE;
+		this.labelStart[node] = start;
+		this.labelEnd[node] = end;
+		this.firstChar[node] = first;
+		this.suffix[node] = NONE;
+		this.firstValue[node] = NONE;
+
+		// a new node invalidates the counts of its ancestors
+		this.resultCount = null;
+
+		return node;
+	}
+
+	/**
+	 * @return the child of a node whose label starts with a char, or NONE
+	 */
+	int getChild(int node, byte first) {
+		for (int child = this.firstChild[node]; child != NONE; child = this.nextSibling[child]) {
+			if (this.firstChar[child] == first) { return child; }
+		}
+
+		return NONE;
+	}
+
+	/**
+	 * Add a child to a node, the node must not have a child whose label starts with the same char.
+	 */
+	void addChild(int node, int child) {
+		this.nextSibling[child] = this.firstChild[node];
+		this.firstChild[node] = child;
+	}
+
+	/**
+	 * Put a new child in the place of a child of a node, its label must start with the same char.
+	 */
+	void replaceChild(int node, int child, int newChild) {
+		this.nextSibling[newChild] = this.nextSibling[child];
+
+		if (this.firstChild[node] == child) {
+			this.firstChild[node] = newChild;
+			return;
+		}
+
+		int previous = this.firstChild[node];
+		while (this.nextSibling[previous] != child) { previous = this.nextSibling[previous]; }
+
+		this.nextSibling[previous] = newChild;
+	}
+
+	int getLabelStart(int node) { return this.labelStart[node]; }
+
+	int getLabelLength(int node) { return this.labelEnd[node] - this.labelStart[node]; }
+
+	/**
+	 * Drop a prefix of the label of a node, as its edge is split.
+	 * @param start the new start of the label
+	 * @param first the char of the text at the new start
+	 */
+	void setLabelStart(int node, int start, byte first) {
+		this.labelStart[node] = start;
+		this.firstChar[node] = first;
+	}
+
+	int getSuffix(int node) { return this.suffix[node]; }
+
+	void setSuffix(int node, int suffixNode) { this.suffix[node] = suffixNode; }
+
+	/**
+	 * Add a value to a node, values are added in non-decreasing order.
+	 * @return false if the node already holds the value
+	 */
+	boolean addValue(int node, int value) {
+
+		int newest = this.firstValue[node];
+
+		if (newest != NONE && this.values[newest] == value) { return false; }
+
+		if (this.valuesSize == this.values.length) {
+			this.values = Arrays.copyOf ( this.values, grow ( this.values.length ) );
+			this.nextValue = Arrays.copyOf ( this.nextValue, this.values.length );
+		}
+
+		this.values[this.valuesSize] = value;
+		this.nextValue[this.valuesSize] = newest;
+		this.firstValue[node] = this.valuesSize++;
+
+		this.resultCount = null;
+
+		return true;
+	}
+
+	/**
+	 * Collect the values of a node and of all the nodes below it.
+	 * @param node          the top node
+	 * @param numElements   the most values collected, -1 for all of them
+	 * @return the different values
+	 */
+	Set<Integer> getData(int node, int numElements) {
+
+		Set<Integer> data = new HashSet<> ();
+
+		int[] stack = new int[INITIAL_CAPACITY];
+		int top = 0;
+		stack[top++] = node;
+
+		while (top > 0) {
+			int current = stack[--top];
+
+			for (int value = this.firstValue[current]; value != NONE; value = this.nextValue[value]) {
+				data.add ( this.values[value] );
+
+				if (data.size () == numElements) { return data; }
+			}
+
+			for (int child = this.firstChild[current]; child != NONE; child = this.nextSibling[child]) {
+				if (top == stack.length) { stack = Arrays.copyOf ( stack, stack.length * 2 ); }
+
+				stack[top++] = child;
+			}
+		}
+
+		return data;
+	}
+
+	/**
+	 * Visit the values of a node and of all the nodes below it, each with the depth of its node, which is the
+	 * length of the labels from the root down to it.
+	 * @param node      the top node
+	 * @param depth     the depth of the top node
+	 * @param visitor   gets every value and the depth of its node
+	 */
+	void visitValues(int node, int depth, GeneralizedSuffixTree.OccurrenceVisitor visitor) {
+
+		// the nodes to visit and their depths
+		int[] stack = new int[INITIAL_CAPACITY];
+		int[] depths = new int[INITIAL_CAPACITY];
+		int top = 0;
+
+		stack[top] = node;
+		depths[top++] = depth;
+
+		while (top > 0) {
+			int current = stack[--top];
+			int currentDepth = depths[top];
+
+			for (int value = this.firstValue[current]; value != NONE; value = this.nextValue[value]) {
+				visitor.visit ( this.values[value], currentDepth );
+			}
+
+			for (int child = this.firstChild[current]; child != NONE; child = this.nextSibling[child]) {
+				if (top == stack.length) {
+					stack = Arrays.copyOf ( stack, stack.length * 2 );
+					depths = Arrays.copyOf ( depths, stack.length );
+				}
+
+				stack[top] = child;
+				depths[top++] = currentDepth + this.getLabelLength ( child );
+			}
+		}
+	}
+
+	/**
+	 * Count the different values of every node and the nodes below it, and keep the counts until the tree
+	 * changes.
+	 * @return the count of the root
+	 */
+	int computeAndCacheCount() {
+
+		// the nodes in breadth first order, so every node comes after its parent
+		int[] order = new int[this.size];
+		int ordered = 0;
+		order[ordered++] = ROOT;
+
+		for (int next = 0; next < ordered; next++) {
+			for (int child = this.firstChild[order[next]]; child != NONE; child = this.nextSibling[child]) {
+				order[ordered++] = child;
+			}
+		}
+
+		// children are counted before their parent, which takes over the largest of their sets
+		int[] counts = new int[this.size];
+		List<Set<Integer>> sets = new ArrayList<> ( Collections.nCopies ( this.size, null ) );
+
+		for (int next = ordered - 1; next >= 0; next--) {
+			int node = order[next];
+			Set<Integer> set = null;
+
+			for (int child = this.firstChild[node]; child != NONE; child = this.nextSibling[child]) {
+				if (set == null || sets.get ( child ).size () > set.size ()) { set = sets.get ( child ); }
+			}
+
+			if (set == null) { set = new HashSet<> (); }
+
+			for (int child = this.firstChild[node]; child != NONE; child = this.nextSibling[child]) {
+				if (sets.get ( child ) != set) { set.addAll ( sets.get ( child ) ); }
+				sets.set ( child, null );
+			}
+
+			for (int value = this.firstValue[node]; value != NONE; value = this.nextValue[value]) {
+				set.add ( this.values[value] );
+			}
+
+			sets.set ( node, set );
+			counts[node] = set.size ();
+		}
+
+		this.resultCount = counts;
+
+		return counts[ROOT];
+	}
+
+	/**
+	 * @return the count of different values of a node and the nodes below it
+	 * @throws IllegalStateException if the counts were not computed since the tree last changed
+	 */
+	int getResultCount(int node) throws IllegalStateException {
+		if (this.resultCount == null) {
+			throw new IllegalStateException ( "getResultCount() shouldn't be called without calling computeCount() first" );
+		}
+
+		return this.resultCount[node];
+	}
+
+	/*
+	the next capacity of an array.
+	 */
+	private static int grow(int capacity) {
+		return capacity + (capacity >> GROWTH_SHIFT);
+	}
+
+	/*
+	grow the capacity of the node arrays.
+	 */
+	private void growNodes() {
+		int capacity = grow ( this.firstChild.length );
+
+		this.firstChild = Arrays.copyOf ( this.firstChild, capacity );
+		this.nextSibling = Arrays.copyOf ( this.nextSibling, capacity );
+		this.labelStart = Arrays.copyOf ( this.labelStart, capacity );
+		this.labelEnd = Arrays.copyOf ( this.labelEnd, capacity );
+		this.firstChar = Arrays.copyOf ( this.firstChar, capacity );
+		this.suffix = Arrays.copyOf ( this.suffix, capacity );
+		this.firstValue = Arrays.copyOf ( this.firstValue, capacity );
+	}
+}
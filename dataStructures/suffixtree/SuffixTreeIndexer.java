@@ -0,0 +1,136 @@
+package dataStructures.suffixtree;
+
+import dataStructures.Aindexer;
+import processing.parsingRules.IparsingRule;
+import processing.searchStrategies.SuffixTreeSearch;
+import processing.textStructure.Block;
+import processing.textStructure.Corpus;
+import processing.textStructure.Entry;
+import utils.WrongMD5ChecksumException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An indexer that puts the normalized text of every block of the corpus in a GeneralizedSuffixTree, keyed by
+ * the id of the block (its number in corpus order). Any substring of the normalized text is then found by
+ * walking the tree along the query alone. The tree lives in memory only, it is built again on every run.
+ *
+ * Every key ends with KEY_END, which a normalized text never holds, so every suffix of a block is a node of the
+ * tree and the tree gives the position of every match in its block, not only the blocks.
+ *
+ * A text is normalized to lower case ASCII letters and digits, and every run of other bytes becomes a single
+ * space, so a query matches regardless of case, punctuation and line breaks.
+ */
+public class SuffixTreeIndexer extends Aindexer<SuffixTreeSearch> {
+
+	public static final IndexTypes TYPE = IndexTypes.SUFFIX_TREE;
+
+	private static final char SEPARATOR = ' ';
+	private static final char KEY_END = '\n';
+	private static final int BYTE_MASK = 0xFF;
+
+	private GeneralizedSuffixTree tree;
+
+	// the block ids used in the tree are the indices of this list
+	private List<Block> blocks;
+
+	// the length of the key of every block, by block id
+	private int[] keyLengths;
+
+	/**
+	 * Basic constructor, sets origin Corpus
+	 * @param origin    the Corpus to be indexed by this DS.
+	 */
+	public SuffixTreeIndexer(Corpus origin) {
+		super ( origin );
+	}
+
+	/**
+	 * Normalize a text the way the blocks are put in the suffix tree.
+	 * @param text      the bytes of the text, read from its position to its limit.
+	 * @param offsets   null, or an array of at least the number of bytes + 1 that gets the offset in the text of
+	 *                  every normalized char, a separator gets the offset of the first byte it stands for.
+	 * @return the normalized text
+	 */
+	public static String normalize(ByteBuffer text, int[] offsets) {
+
+		StringBuilder normalized = new StringBuilder ( text.remaining () );
+
+		for (int offset = 0; offset < text.remaining (); offset++) {
+
+			char current = Character.toLowerCase ( (char) (text.get ( text.position () + offset ) & BYTE_MASK) );
+
+			boolean isKept = (current >= 'a' && current <= 'z') || (current >= '0' && current <= '9');
+
+			if (!isKept) {
+				// a run of other bytes is a single separator
+				if (normalized.length () > 0 && normalized.charAt ( normalized.length () - 1 ) == SEPARATOR) {
+					continue;
+				}
+				current = SEPARATOR;
+			}
+
+			if (offsets != null) { offsets[normalized.length ()] = offset; }
+
+			normalized.append ( current );
+		}
+
+		return normalized.toString ();
+	}
+
+	@Override
+	protected void indexCorpus() {
+
+		this.tree = new GeneralizedSuffixTree ();
+
+		List<Block> corpusBlocks = new ArrayList<> ();
+		List<Integer> corpusKeyLengths = new ArrayList<> ();
+
+		for (Entry currentEntry : this.origin) {
+			for (Block currentBlock : currentEntry) {
+				String key = normalize ( currentBlock.getBytes (), null ) + KEY_END;
+
+				this.tree.put ( key, corpusBlocks.size () );
+
+				corpusBlocks.add ( currentBlock );
+				corpusKeyLengths.add ( key.length () );
+			}
+		}
+
+		this.blocks = Collections.unmodifiableList ( corpusBlocks );
+		this.keyLengths = corpusKeyLengths.stream ().mapToInt ( Integer::intValue ).toArray ();
+	}
+
+	/**
+	 * The tree is not written to a file, so there is never a file to read.
+	 * @throws WrongMD5ChecksumException always, so the corpus is indexed.
+	 */
+	@Override
+	protected void readIndexedFile() throws WrongMD5ChecksumException {
+		throw new WrongMD5ChecksumException ();
+	}
+
+	@Override
+	protected void writeIndexFile() {
+		// the tree lives in memory only
+	}
+
+	/**
+	 * getter for the IparsingRule obj
+	 * @return IparsingRule
+	 */
+	@Override
+	public IparsingRule getParseRule() { return this.origin.getParsingRule (); }
+
+	/**
+	 * getter for the SuffixTreeSearch obj
+	 * @return SuffixTreeSearch
+	 */
+	@Override
+	public SuffixTreeSearch asSearchInterface() {
+		return new SuffixTreeSearch ( this.tree, this.blocks, this.keyLengths );
+	}
+}
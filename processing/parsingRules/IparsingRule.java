@@ -51,13 +51,23 @@ public interface IparsingRule extends Serializable {
 	 */
 	List<Block> parsedFile(RandomAccessFile inputFile) throws IOException;
 
+	/**
+	 * Format a WordResult object according to the parsing rules.
+	 * @param wordResult    The WordResult to be formatted
+	 * @return  the text printResult() prints for the result
+	 * @throws IOException  If the RAF misbehaves.
+	 */
+	String formatResult(WordResult wordResult) throws IOException;
+
 	/**
 	 * Print a WordResult object according to the parsing rules.
 
 	 * @param wordResult    The WordResult to be printed
 	 * @throws IOException  If the RAF misbehaves.
 	 */
-	void printResult(WordResult wordResult) throws IOException;
+	default void printResult(WordResult wordResult) throws IOException {
+		System.out.println ( this.formatResult ( wordResult ) );
+	}
 
 
     /**
@@ -123,7 +123,7 @@ public class STtvSeriesParsingRule implements IparsingRule, Serializable {
     ////////////////////// Printing A Result ///////////////////////////////////////////////
 
     /**
-     * Prints the result in the following format:
+     * Formats the result in the following format:
      * <p>
      * The result:
      * *Result                ( *Result is defined in WordResult )
@@ -134,11 +134,11 @@ public class STtvSeriesParsingRule implements IparsingRule, Serializable {
      * that was                     ( Optional might be a few  )
      * CreditReason by CreditedCreatorsName
      *
-     * @param wordResult The WordResult to be printed
+     * @param wordResult The WordResult to be formatted
      * @throws IOException
      */
     @Override
-    public void printResult(WordResult wordResult) throws IOException {
+    public String formatResult(WordResult wordResult) throws IOException {
 
         String[] sceneBlock = wordResult.getBlock().toString().split("\n");
         StringBuilder result = new StringBuilder();
@@ -189,17 +189,14 @@ public class STtvSeriesParsingRule implements IparsingRule, Serializable {
             for(int i= 1;i < entryMeta.size();i++){
                 result.append(entryMeta.get(i));
             }
+        }
 
         // Search result
         result.insert(0, wordResult.resultToString() + "\n");
 
         result.insert(0, RESULT_TITLE);
 
-        System.out.println(result);
-
-        }
-        System.out.println(result);
-
+        return result.toString();
     }
 
 ////////////////////////////////// Parser Utils //////////////////////////////////////////////////////////
@@ -249,15 +246,14 @@ public class STtvSeriesParsingRule implements IparsingRule, Serializable {
 
 
 
-    /**Gets the Block's RAF Channel and uses Scanner.findWithInHorizon() to return the first found match.
+    /**Gets the Block's text and uses Scanner.findWithInHorizon() to return the first found match.
      * @param block the Block that should be searched.
      * @param stringLinePattern the Pattern that fits only the wanted result.
      * @return the first matching String that starts after after the offSet,
      *                  if their is no match will return null.
      */
     String stringByPattern(Block block, Pattern stringLinePattern) throws IOException{
-        block.getRAF().seek( block.getStartIndex() );
-        Scanner blockScanner = new Scanner(block.getRAF().getChannel());
+        Scanner blockScanner = new Scanner(block.toString());
         return blockScanner.findWithinHorizon( stringLinePattern,
                 (int) ( block.getEndIndex() - block.getStartIndex() ) );
 
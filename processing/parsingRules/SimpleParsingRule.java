@@ -69,8 +69,8 @@ public class SimpleParsingRule implements IparsingRule, Serializable {
 	}
 
 	@Override
-	public void printResult(WordResult wordResult) throws IOException {
-		System.out.println("The result: \n" + wordResult.resultToString());
+	public String formatResult(WordResult wordResult) throws IOException {
+		return "The result: \n" + wordResult.resultToString();
 	}
 
 	private String getSplitRegex() {
@@ -0,0 +1,49 @@
+package processing.searchStrategies;
+
+/**
+ * The Okapi BM25 relevance of a block to a query: the sum over the query words of the inverse document
+ * frequency of the word, times its occurrences in the block saturated by K1 and normalized by the length of
+ * the block relative to the average length by B. Scoring is pure arithmetic on the collection statistics of
+ * the index, so it allocates nothing.
+ */
+final class Bm25 {
+
+	/** the term frequency saturation */
+	static final double K1 = 1.2;
+
+	/** the strength of the block length normalization */
+	static final double B = 0.75;
+
+	private final int numOfBlocks;
+	private final double averageBlockLength;
+
+	/**
+	 * constructor
+	 * @param numOfBlocks           the number of blocks in the corpus
+	 * @param averageBlockLength    the average number of indexed words in a block
+	 */
+	Bm25(int numOfBlocks, double averageBlockLength) {
+		this.numOfBlocks = numOfBlocks;
+		this.averageBlockLength = Math.max ( averageBlockLength, Double.MIN_NORMAL );
+	}
+
+	/**
+	 * @param documentFrequency the number of blocks a word occurs in
+	 * @return the inverse document frequency of the word, never negative.
+	 */
+	double idf(int documentFrequency) {
+		return Math.log ( 1 + (this.numOfBlocks - documentFrequency + 0.5) / (documentFrequency + 0.5) );
+	}
+
+	/**
+	 * @param termFrequency the occurrences of a word in a block
+	 * @param blockLength   the number of indexed words in the block
+	 * @param idf           the inverse document frequency of the word
+	 * @return the part of the relevance of the block that the word adds.
+	 */
+	double score(int termFrequency, int blockLength, double idf) {
+		double normalization = K1 * (1 - B + B * blockLength / this.averageBlockLength);
+
+		return idf * termFrequency * (K1 + 1) / (termFrequency + normalization);
+	}
+}
@@ -1,200 +1,764 @@
 package processing.searchStrategies;
 
+import dataStructures.dictionary.DictionaryIndex;
+import dataStructures.dictionary.PostingsCursor;
+import dataStructures.dictionary.TermDictionary;
 import dataStructures.dictionary.ResultsAggregator;
-import dataStructures.dictionary.WordAndQuery;
-import processing.textStructure.Block;
 import processing.textStructure.MultiWordResult;
-import processing.textStructure.Word;
 import processing.textStructure.WordResult;
-import utils.MatchesNotFoundException;
 import utils.Stemmer;
 import utils.Stopwords;
 
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
- * Dictionary search strategy for text files.
+ * Dictionary search strategy for text files. A part of the query in double quotes is a phrase: its words are
+ * matched only where they follow each other in the text, by the positions of their postings. Stop words are
+ * not indexed, so a stop word in a phrase matches any single word.
  */
 public class DictionarySearch implements IsearchStrategy {
 
 //============================ Constants ===================================================================
-	private static final int MAX_RESULTS = 10;
-	private final HashMap<Integer, List<Word>> dictionary;
-	private final Stemmer STEMMER = new Stemmer ();
+	private static final int FIRST_OCCURRENCE = 0;
+	private static final int FIRST_BLOCK = 0;
+	private static final int LAST_BLOCK = Integer.MAX_VALUE - 1;
+	// a block holding a query word holds at least one indexed word, the bound of every block length
+	private static final int SHORTEST_BLOCK = 1;
+	private static final int NO_PIVOT = -1;
+	// the phrases of a query in double quotes and the words of a phrase, as the DictionaryIndexer finds them
+	private static final Pattern PHRASE_PATTERN = Pattern.compile ( "\"([^\"]*)\"" );
+	private static final Pattern WORD_PATTERN = Pattern.compile ( "[a-z]+" );
+	private static final String QUOTE = "\"";
+	private static final int INITIAL_BLOCK_OCCURRENCES = 8;
+	// no window scores better than words right next to each other, if the occurrences of the words never overlap
+	private static final long BEST_CONFIDENCE = 0;
+	// the occurrences of query words that share an indexed word may overlap, so may a phrase with a stop word
+	// in it and the word at the position of the stop word, and their windows score below BEST_CONFIDENCE.
+	private static final long NO_CONFIDENCE_BOUND = Long.MIN_VALUE;
+	private static final String KEY_SEPARATOR = " ";
+	// relevance is ranked as a fixed point number
+	private static final double RELEVANCE_SCALE = 1e6;
+	private final DictionaryIndex index;
+	private final Ranking ranking;
+	private final Matching matching;
+	private final Bm25 bm25;
 
-//============================ Vars ===================================================================
-	private ResultsAggregator aggregator;
-	private TreeSet<MultiWordResult> topTenResultCombinations;
-	private ArrayList<String> queryList;
-	private HashSet<WordAndQuery> wordsFromBlock;
-	private int numOfQueries;
+	/**
+	 * constructor for the class, ranks by proximity.
+	 *
+	 * @param index - DictionaryIndex of the stemmed words.
+	 */
+	public DictionarySearch(DictionaryIndex index) {
+		this ( index, Ranking.PROXIMITY, Matching.ALL );
+	}
 
 	/**
 	 * constructor for the class
 	 *
-	 * @param dict - Hashmap mapping Integers to lists of Word objects.
+	 * @param index - DictionaryIndex of the stemmed words.
+	 * @param ranking - the ranking of the results. Either way the result of a block shows its closest words.
+	 * @param matching - the blocks the query words are matched in.
 	 */
-	public DictionarySearch(HashMap<Integer, List<Word>> dict) {
-		this.dictionary = dict;
+	public DictionarySearch(DictionaryIndex index, Ranking ranking, Matching matching) {
+		this.index = index;
+		this.ranking = ranking;
+		this.matching = matching;
+		this.bm25 = new Bm25 ( index.numOfBlocks (), index.averageBlockLength () );
 	}
 
 	/**
-	 * Search function for indexed search files.
+	 * Search function for indexed search files. Every call keeps its state in a Query object of its own,
+	 * so one DictionarySearch can serve many queries at once.
 	 *
 	 * @param query The query string to search for.
+	 * @param maxResults The most results returned.
 	 * @return a list of WordResults objects that represent valid results.
 	 * @throws NullPointerException
 	 */
 	@Override
-	public List<? extends WordResult> search(String query) throws NullPointerException {
-		// init data structs
-		this.queryList = new ArrayList<> ();
+	public List<? extends WordResult> search(String query, int maxResults) throws NullPointerException {
+		return new Query ( query, maxResults, this.ranking, this.matching, FIRST_BLOCK, LAST_BLOCK ).search ();
+	}
+
+	/*
+	The state of a single search, the index is only read.
+	 */
+	private final class Query {
+
+//============================ Vars ===================================================================
+		private final Stemmer stemmer = new Stemmer ();
+		private final String rawQuery;
+		private final int maxResults;
+		private final Ranking ranking;
+		private final Matching matching;
+		private final int firstBlock;
+		private final int lastBlock;
+		private ResultsAggregator aggregator;
+		private TopResults<Window> topResultCombinations;
+		private List<Window> resultWindows;
+		private double[] idfs;
+		private ArrayList<String> queryList;
+		// per query word, its indexed words and their positions relative to the first one. a phrase has more
+		// than one.
+		private ArrayList<String[]> phraseWords;
+		private ArrayList<int[]> phrasePositions;
+		// the stems of the indexed words of the query words, and the stems and positions of every query word
+		private HashSet<String> queryStems;
+		private HashSet<String> queryKeys;
+		// the best confidence a window of the query words can have
+		private long confidenceBound = BEST_CONFIDENCE;
+		private int numOfQueries;
+
+		private Query(String rawQuery, int maxResults, Ranking ranking, Matching matching, int firstBlock,
+					  int lastBlock) {
+			this.rawQuery = rawQuery;
+			this.maxResults = maxResults;
+			this.ranking = ranking;
+			this.matching = matching;
+			this.firstBlock = firstBlock;
+			this.lastBlock = lastBlock;
+		}
+
+		/*
+		run the search of the query
+		 */
+		private List<? extends WordResult> search() throws NullPointerException {
+			// init data structs
+			this.queryList = new ArrayList<> ();
+			this.phraseWords = new ArrayList<> ();
+			this.phrasePositions = new ArrayList<> ();
+			this.queryStems = new HashSet<> ();
+			this.queryKeys = new HashSet<> ();
+
+			this.topResultCombinations = new TopResults<> ( this.maxResults );
 
-		this.wordsFromBlock = new HashSet<>();
+			// parse query to single words
+			this.processQuery ( this.rawQuery );
 
-		this.topTenResultCombinations = new TreeSet<> ();
+			if (this.matching == Matching.ANY) { return this.searchAnyWord (); }
 
-		// parse query to single words
-		this.processQuery ( query );
+			// init data structure for partial results
+			this.aggregator = new ResultsAggregator ( this.numOfQueries );
 
-		// init data structure for partial results
-		this.aggregator = new ResultsAggregator ( this.numOfQueries );
 
+			try {
+				// Parse the results to data struct
+				this.parseQueryResults ();
+
+				if (this.ranking == Ranking.BM25) {
+					generateRankedResults ();
+				} else {
+					generatePossibleWordResults ();
+					this.resultWindows = this.topResultCombinations.toList ();
+				}
+
+			} catch (Exception e) {
+				throw new NullPointerException ( e.getMessage () );
+			}
 
-		try {
-			// Parse the results to data struct
-			this.parseQueryResults ();
+			List<MultiWordResult> results = new ArrayList<> ();
 
-			generatePossibleWordResults();
+			for (Window window : this.resultWindows) { results.add ( this.toResult ( window ) ); }
 
-		} catch (Exception e) {
-			throw new NullPointerException ( e.getMessage () );
+			return results;
 		}
 
-		return new ArrayList<> ( this.topTenResultCombinations );
-	}
+		/*
+		get the id of the term in the dictionary that matches a certain word
+	 	*/
+		private int dictMatchesForQuery(String queryWord) throws NullPointerException {
+			// the dictionary is keyed by the stemmed word itself
+			int termId = index.termId ( this.stemmer.stem ( queryWord ) );
 
-	/*
-	get a list of Word objects in the dictionary that match a certain word
- 	*/
-	private ArrayList<Word> dictMatchesForQuery(String queryWord) throws NullPointerException {
-		// generate a key from the query word
-		int stemmedQueryHash = STEMMER.stem ( queryWord ).hashCode ();
+			if (termId == TermDictionary.NOT_FOUND || index.size ( termId ) <= 0) {
+				throw new NullPointerException ( "No results found for at least one query." );
+			}
+
+			return termId;
+		}
 
-		//init list
-		List<Word> resultList;
 
-		resultList = this.dictionary.get ( stemmedQueryHash );
 
-		if (resultList == null || resultList.size () <= 0) {
-			throw new NullPointerException ( "No results found for at least one query." );
+
+		/*
+		parse query to single query word stings and phrases. the words of any matching are matched on their own.
+		a query word is searched once: a word is skipped if an earlier query word has a word of the same stem,
+		and a phrase is skipped if an earlier one has the same stems at the same positions.
+		 */
+		private void processQuery(String rawQuery) {
+			String lowerCaseQuery = rawQuery.toLowerCase ();
+
+			if (this.matching == Matching.ANY) { lowerCaseQuery = lowerCaseQuery.replace ( QUOTE, " " ); }
+
+			Matcher phraseMatcher = PHRASE_PATTERN.matcher ( lowerCaseQuery );
+
+			while (phraseMatcher.find ()) { this.addPhrase ( phraseMatcher.group ( 1 ).trim () ); }
+
+			String[] rawQueryWords = phraseMatcher.replaceAll ( " " ).trim ().split ( " " );
+
+			for (String queryWord : rawQueryWords) {
+				if (!queryWord.isEmpty () && !Stopwords.isStopword ( queryWord ) &&
+					!this.queryStems.contains ( this.stemmer.stem ( queryWord ) )) {
+					this.addQueryWord ( queryWord, new String[]{queryWord}, new int[]{0} );
+				}
+			}
+
+			this.numOfQueries = queryList.size ();
 		}
 
-		return new ArrayList<> ( resultList );
-	}
+		/*
+		add a phrase as a single query word, with the positions of its indexed words. a phrase of a single
+		indexed word is that word.
+		 */
+		private void addPhrase(String phrase) {
+			List<String> words = new ArrayList<> ();
+			List<Integer> positions = new ArrayList<> ();
 
+			Matcher wordMatcher = WORD_PATTERN.matcher ( phrase );
 
+			// the position in the phrase of its first indexed word, the stop words before it are not matched
+			int firstPosition = 0;
 
+			for (int position = 0; wordMatcher.find (); position++) {
+				if (Stopwords.isStopword ( wordMatcher.group () )) { continue; }
 
-	/*
-	parse query to single query word stings
-	 */
-	private void processQuery(String rawQuery) {
-		String[] rawQueryWords = rawQuery.toLowerCase ().trim ().split ( " " );
+				if (words.isEmpty ()) { firstPosition = position; }
 
-		for (String queryWord : rawQueryWords) {
-			if (!Stopwords.isStopword ( queryWord )) {
-				this.queryList.add ( queryWord );
+				words.add ( wordMatcher.group () );
+				positions.add ( position - firstPosition );
 			}
+
+			if (words.isEmpty ()) { return; }
+
+			String queryWord = (words.size () == 1) ? words.get ( 0 ) : phrase;
+
+			if (words.size () == 1 && this.queryStems.contains ( this.stemmer.stem ( queryWord ) )) { return; }
+
+			this.addQueryWord ( queryWord, words.toArray ( new String[0] ),
+								positions.stream ().mapToInt ( Integer::intValue ).toArray () );
 		}
 
-		this.numOfQueries = queryList.size ();
-	}
+		/*
+		add a query word unless an earlier one has the same stems at the same positions, and find out if its
+		occurrences may overlap those of other query words.
+		 */
+		private void addQueryWord(String queryWord, String[] words, int[] positions) {
+			StringBuilder key = new StringBuilder ();
 
-	/*
-	parse the results to resultAggregator
-	 */
-	private void parseQueryResults() throws Exception {
+			for (int word = 0; word < words.length; word++) {
+				key.append ( this.stemmer.stem ( words[word] ) ).append ( KEY_SEPARATOR ).append ( positions[word] )
+				   .append ( KEY_SEPARATOR );
+			}
 
-		for (String queryWord : this.queryList) {
+			if (!this.queryKeys.add ( key.toString () )) { return; }
+
+			for (String word : words) {
+				if (!this.queryStems.add ( this.stemmer.stem ( word ) )) { this.confidenceBound = NO_CONFIDENCE_BOUND; }
+			}
 
-			ArrayList<Word> queryResults = dictMatchesForQuery ( queryWord );
+			if (positions[positions.length - 1] != positions.length - 1) { this.confidenceBound = NO_CONFIDENCE_BOUND; }
 
-			if (queryResults.isEmpty ()) {
-				throw new MatchesNotFoundException ( "parsing single query results." );
+			this.queryList.add ( queryWord );
+			this.phraseWords.add ( words );
+			this.phrasePositions.add ( positions );
+		}
+
+		/*
+		parse the results to resultAggregator, only the occurrences in blocks that contain every indexed word of
+		the query. the cursors of the words leapfrog each other by block id starting from the rarest word, which
+		sets the next block all of them must reach, and a cursor that passes it sets a further block instead.
+		the other words are only read up to the blocks of the rarest one, so they add nothing to the aggregator
+		in blocks the rarest word is not in.
+		 */
+		private void parseQueryResults() throws Exception {
+
+			this.idfs = new double[this.numOfQueries];
+
+			// a query of stop words only has no results
+			if (this.numOfQueries == 0) { return; }
+
+			// the cursors of the words of every query word, a phrase has one per indexed word
+			PostingsCursor[][] cursors = new PostingsCursor[this.numOfQueries][];
+			List<PostingsCursor> allCursors = new ArrayList<> ();
+
+			for (int queryNumber = 0; queryNumber < this.numOfQueries; queryNumber++) {
+				String[] words = this.phraseWords.get ( queryNumber );
+
+				cursors[queryNumber] = new PostingsCursor[words.length];
+
+				for (int word = 0; word < words.length; word++) {
+					int termId = dictMatchesForQuery ( words[word] );
+
+					// a phrase is at least as rare as its rarest word
+					this.idfs[queryNumber] = Math.max ( this.idfs[queryNumber],
+														bm25.idf ( index.documentFrequency ( termId ) ) );
+
+					cursors[queryNumber][word] = index.cursor ( termId );
+					allCursors.add ( cursors[queryNumber][word] );
+				}
+			}
+
+			PostingsCursor[] byRarity = allCursors.toArray ( new PostingsCursor[0] );
+
+			Arrays.sort ( byRarity, Comparator.comparingInt ( PostingsCursor::size ) );
+
+			int target = this.firstBlock;
+
+			while (target <= this.lastBlock) {
+
+				boolean allInTarget = true;
+
+				for (PostingsCursor cursor : byRarity) {
+					if (!cursor.advanceToBlock ( target )) { return; }
+
+					if (cursor.blockId () > target) {
+						target = cursor.blockId ();
+						allInTarget = false;
+						break;
+					}
+				}
+
+				if (!allInTarget) { continue; }
+
+				// the occurrences are decoded one by one, straight into the aggregator
+				for (int queryNumber = 0; queryNumber < this.numOfQueries; queryNumber++) {
+
+					if (cursors[queryNumber].length > 1) {
+						this.addPhraseOccurrences ( queryNumber, target, cursors[queryNumber] );
+						continue;
+					}
+
+					PostingsCursor queryResults = cursors[queryNumber][0];
+
+					do {
+						this.aggregator.addOccurrence ( queryNumber, target, queryResults.offset (),
+														queryResults.length () );
+					} while (queryResults.next () && queryResults.blockId () == target);
+				}
+
+				target++;
 			}
+		}
 
-			for (Word word : queryResults) {
-				this.aggregator.addWord ( word, queryWord );
+		/*
+		add the occurrences of a phrase in a block all of its words are in: the occurrences of its first word
+		that every other word follows at its position in the phrase. an occurrence of a phrase spans from the
+		first word to the end of the last one.
+		 */
+		private void addPhraseOccurrences(int queryNumber, int blockId, PostingsCursor[] cursors) {
+
+			int[] relativePositions = this.phrasePositions.get ( queryNumber );
+
+			// the positions, offsets and lengths of the occurrences of every word in the block
+			int[][] positions = new int[cursors.length][];
+			long[][] offsets = new long[cursors.length][];
+			int[][] lengths = new int[cursors.length][];
+			int[] counts = new int[cursors.length];
+
+			for (int word = 0; word < cursors.length; word++) {
+				positions[word] = new int[INITIAL_BLOCK_OCCURRENCES];
+				offsets[word] = new long[INITIAL_BLOCK_OCCURRENCES];
+				lengths[word] = new int[INITIAL_BLOCK_OCCURRENCES];
+
+				do {
+					if (counts[word] == positions[word].length) {
+						positions[word] = Arrays.copyOf ( positions[word], counts[word] * 2 );
+						offsets[word] = Arrays.copyOf ( offsets[word], counts[word] * 2 );
+						lengths[word] = Arrays.copyOf ( lengths[word], counts[word] * 2 );
+					}
+
+					positions[word][counts[word]] = cursors[word].tokenPosition ();
+					offsets[word][counts[word]] = cursors[word].offset ();
+					lengths[word][counts[word]] = cursors[word].length ();
+					counts[word]++;
+				} while (cursors[word].next () && cursors[word].blockId () == blockId);
+			}
+
+			int lastWord = cursors.length - 1;
+
+			for (int first = 0; first < counts[0]; first++) {
+
+				int lastOccurrence = -1;
+
+				for (int word = 1; word < cursors.length; word++) {
+					lastOccurrence = Arrays.binarySearch ( positions[word], 0, counts[word],
+														   positions[0][first] + relativePositions[word] );
+					if (lastOccurrence < 0) { break; }
+				}
+
+				if (lastOccurrence < 0) { continue; }
+
+				long start = offsets[0][first];
+				long end = offsets[lastWord][lastOccurrence] + lengths[lastWord][lastOccurrence];
+
+				this.aggregator.addOccurrence ( queryNumber, blockId, start, (int) (end - start) );
 			}
 		}
-	}
 
-    private void generatePossibleWordResults() throws Exception{
-        HashSet<Block> validBlocks = new HashSet<>(this.aggregator.getAllValidBlocks());
+		/*
+		rank the blocks that contain any of the query words by their BM25 relevance, with block-max WAND: the
+		cursors of the query words are kept in the order of their blocks, and the pivot is the first block at
+		which the upper bounds of the relevance of the query words up to it could enter the results. no block
+		before the pivot can, so the cursors before it move to it without decoding the blocks in between. the
+		pivot is only scored if the bounds of the postings blocks holding it could enter as well, otherwise
+		the cursors move past the first of those postings blocks to end.
+		the result of a ranked block is the best window of the query words it contains.
+		 */
+		private List<? extends WordResult> searchAnyWord() {
 
-        for (Block block : validBlocks) {
-            this.wordsFromBlock = new HashSet<>(aggregator.getWordsByBlock(block));
+			PostingsCursor[] cursors = new PostingsCursor[this.numOfQueries];
+			double[] upperBounds = new double[this.numOfQueries];
+			this.idfs = new double[this.numOfQueries];
 
-            addPossiblePermutationsToSet(new Word[numOfQueries], 0);
-        }
-    }
+			// the query words with occurrences left
+			int[] active = new int[this.numOfQueries];
+			int numOfActive = 0;
 
-	/*
-	recursively add permutation of word combinations (one from each query) to data sturcture.
-	 */
-	private void addPossiblePermutationsToSet(Word[] words, int queryNumber) throws Exception {
-		// stopping condition
-		if (queryNumber == this.numOfQueries) { this.addPossibleResult ( words );
-			return;
+			for (int queryNumber = 0; queryNumber < this.numOfQueries; queryNumber++) {
+				int termId = index.termId ( this.stemmer.stem ( this.queryList.get ( queryNumber ) ) );
+
+				if (termId == TermDictionary.NOT_FOUND || index.size ( termId ) <= 0) { continue; }
+
+				cursors[queryNumber] = index.cursor ( termId );
+				this.idfs[queryNumber] = bm25.idf ( index.documentFrequency ( termId ) );
+				upperBounds[queryNumber] = bm25.score ( cursors[queryNumber].maxTermFrequency (), SHORTEST_BLOCK,
+														this.idfs[queryNumber] );
+
+				if (cursors[queryNumber].advanceToBlock ( FIRST_BLOCK )) { active[numOfActive++] = queryNumber; }
+			}
+
+			// the query numbers of the words in each ranked block
+			TopResults<int[]> rankedBlocks = new TopResults<> ( this.maxResults );
+
+			while (numOfActive > 0) {
+
+				sortByBlock ( cursors, active, numOfActive );
+
+				int pivot = this.findPivot ( cursors, upperBounds, active, numOfActive, rankedBlocks );
+
+				if (pivot == NO_PIVOT) { break; }
+
+				int pivotBlock = cursors[active[pivot]].blockId ();
+
+				while (pivot + 1 < numOfActive && cursors[active[pivot + 1]].blockId () == pivotBlock) { pivot++; }
+
+				// the bound of the pivot holds up to the first block a query word after it is in
+				int boundEnd = (pivot + 1 < numOfActive) ? cursors[active[pivot + 1]].blockId () : Integer.MAX_VALUE;
+				double blockMaxBound = 0;
+
+				for (int i = 0; i <= pivot; i++) {
+					PostingsCursor cursor = cursors[active[i]];
+
+					blockMaxBound += bm25.score ( cursor.blockMaxTermFrequency ( pivotBlock ), SHORTEST_BLOCK,
+												  this.idfs[active[i]] );
+					boundEnd = Math.min ( boundEnd, cursor.blockMaxEnd ( pivotBlock ) );
+				}
+
+				int target;
+
+				if (!rankedBlocks.canEnter ( upperScore ( blockMaxBound ), pivotBlock )) {
+					target = boundEnd;
+				} else if (cursors[active[0]].blockId () < pivotBlock) {
+					target = pivotBlock;
+				} else {
+					this.scoreBlock ( pivotBlock, cursors, Arrays.copyOf ( active, pivot + 1 ), rankedBlocks );
+					target = pivotBlock + 1;
+				}
+
+				// the query words up to the pivot move on, the ones with no occurrences left are dropped
+				int kept = 0;
+
+				for (int i = 0; i < numOfActive; i++) {
+					if (i > pivot || cursors[active[i]].advanceToBlock ( target )) { active[kept++] = active[i]; }
+				}
+
+				numOfActive = kept;
+			}
+
+			List<WordResult> results = new ArrayList<> ();
+
+			for (int[] blockWords : rankedBlocks.toList ()) {
+				int blockId = blockWords[blockWords.length - 1];
+
+				StringBuilder words = new StringBuilder ();
+
+				for (int i = 0; i < blockWords.length - 1; i++) {
+					words.append ( this.queryList.get ( blockWords[i] ) ).append ( ' ' );
+				}
+
+				// the best window of the words of the block, which are all in it
+				results.addAll ( new Query ( words.toString (), 1, Ranking.PROXIMITY, Matching.ALL, blockId,
+											 blockId ).search () );
+			}
+
+			return results;
 		}
 
-		for (Word word : matchesOfQueryNumber ( queryNumber )) {
-			words[queryNumber] = word;
+		/*
+		the index of the first query word, in the order of their blocks, at which the upper bounds of the query
+		words up to it could enter the ranked blocks, NO_PIVOT if there is none.
+		 */
+		private int findPivot(PostingsCursor[] cursors, double[] upperBounds, int[] active, int numOfActive,
+							  TopResults<int[]> rankedBlocks) {
+			double upperBound = 0;
+
+			for (int i = 0; i < numOfActive; i++) {
+				upperBound += upperBounds[active[i]];
 
-			addPossiblePermutationsToSet ( words, queryNumber + 1 );
+				if (rankedBlocks.canEnter ( upperScore ( upperBound ), cursors[active[i]].blockId () )) { return i; }
+			}
+
+			return NO_PIVOT;
 		}
-	}
 
+		/*
+		score a block all the given cursors are in, reading their occurrences in it, and offer it to the ranked
+		blocks with the query numbers of its words and its id last.
+		 */
+		private void scoreBlock(int blockId, PostingsCursor[] cursors, int[] blockWords,
+								TopResults<int[]> rankedBlocks) {
 
-	// add permutation to multiwordresult tree
-	private void addPossibleResult(Word[] words) throws Exception {
-		MultiWordResult multiWordResult = this.generateMultiWordResult ( words );
+			int blockLength = index.blockLength ( blockId );
+			double relevance = 0;
 
-		this.topTenResultCombinations.add ( multiWordResult );
+			for (int queryNumber : blockWords) {
+				int termFrequency = 0;
+
+				do {
+					termFrequency++;
+				} while (cursors[queryNumber].next () && cursors[queryNumber].blockId () == blockId);
+
+				relevance += bm25.score ( termFrequency, blockLength, this.idfs[queryNumber] );
+			}
 
-		if (this.topTenResultCombinations.size () > MAX_RESULTS) {
-			this.topTenResultCombinations.pollLast ();
+			long score = rankScore ( relevance );
+
+			if (rankedBlocks.canEnter ( score, blockId )) {
+				int[] wordsAndBlock = Arrays.copyOf ( blockWords, blockWords.length + 1 );
+				wordsAndBlock[blockWords.length] = blockId;
+
+				rankedBlocks.offer ( score, blockId, wordsAndBlock );
+			}
 		}
-	}
 
-	// generate multiwordresult
-	private MultiWordResult generateMultiWordResult(Word[] words) throws Exception {
-		long[] indexArray = new long[this.numOfQueries];
+		/*
+		results of the same confidence rank by the id of their block, so the blocks are visited in that order:
+		once a block could not enter even with the best confidence a window of the query words can have, neither
+		can any block after it.
+		 */
+	    private void generatePossibleWordResults() {
+	        int[] validBlocks = this.aggregator.getAllValidBlocks();
+
+	        for (int validBlock = 0; validBlock < validBlocks.length; validBlock++) {
+	            if (!this.topResultCombinations.canEnter(this.confidenceBound, validBlocks[validBlock])) { return; }
 
-		for (int i = 0; i < this.numOfQueries; i++) {
-			indexArray[i] = words[i].getEntryIndex () - words[i].getSrcBlk().getStartIndex ();
+	            addMinimalWindowsToSet(validBlock, validBlocks[validBlock], this.topResultCombinations);
+	        }
+	    }
+
+		/*
+		rank the valid blocks by their BM25 relevance, computed from the runs of occurrences in the aggregator
+		and the statistics of the index alone. the result of a ranked block is its best window.
+		 */
+		private void generateRankedResults() {
+			int[] validBlocks = this.aggregator.getAllValidBlocks ();
+
+			TopResults<Integer> rankedBlocks = new TopResults<> ( this.maxResults );
+
+			for (int validBlock = 0; validBlock < validBlocks.length; validBlock++) {
+
+				int blockLength = index.blockLength ( validBlocks[validBlock] );
+
+				double relevance = 0;
+
+				for (int queryNumber = 0; queryNumber < this.numOfQueries; queryNumber++) {
+					int termFrequency = this.aggregator.endOfOccurrences ( validBlock, queryNumber ) -
+										this.aggregator.firstOccurrence ( validBlock, queryNumber );
+
+					relevance += bm25.score ( termFrequency, blockLength, this.idfs[queryNumber] );
+				}
+
+				long score = rankScore ( relevance );
+
+				if (rankedBlocks.canEnter ( score, validBlocks[validBlock] )) {
+					rankedBlocks.offer ( score, validBlocks[validBlock], validBlock );
+				}
+			}
+
+			this.resultWindows = new ArrayList<> ();
+
+			for (int validBlock : rankedBlocks.toList ()) {
+				TopResults<Window> bestWindow = new TopResults<> ( 1 );
+
+				addMinimalWindowsToSet ( validBlock, validBlocks[validBlock], bestWindow );
+
+				this.resultWindows.addAll ( bestWindow.toList () );
+			}
+		}
+
+		/*
+		add the minimal windows of the block that cover an occurrence of every query word to the data structure.
+		the occurrences of the query words are merged by their position with a heap holding the current
+		occurrence of every query word: the current occurrences always form a window, and moving the query word
+		of the first one to its next occurrence gives the tightest window starting after it. every window that
+		is not reached this way contains one that is, so it can not have a better confidence.
+		the other query words may occur more than once inside a window, in words of different lengths of the same
+		stem. each of them is scored by its longest occurrence in the window, which gives the window its best
+		confidence: the longest occurrences are kept in a deque per query word, as the window only moves forward.
+		a window is scored from the offsets and lengths of the postings alone, and only becomes a
+		MultiWordResult if it is among the final results.
+		 */
+		private void addMinimalWindowsToSet(int validBlock, int blockId, TopResults<Window> windows) {
+
+			ResultsAggregator occurrences = this.aggregator;
+
+			int[] current = new int[this.numOfQueries];
+
+			// the window ends where the word starting last ends
+			long lastStart = -1;
+			long windowEnd = 0;
+
+			// per query word, its occurrences in the window from the current one on, by decreasing length
+			int[][] longest = new int[this.numOfQueries][];
+			int[] longestHead = new int[this.numOfQueries];
+			int[] longestTail = new int[this.numOfQueries];
+			int[] nextInWindow = new int[this.numOfQueries];
+
+			// a block is a result once per confidence
+			HashSet<Long> blockConfidences = new HashSet<> ();
+
+			PriorityQueue<Integer> firstOccurrences = new PriorityQueue<> ( this.numOfQueries,
+					Comparator.comparingLong ( queryNumber -> occurrences.offset ( queryNumber, current[queryNumber] ) ) );
+
+			for (int queryNumber = 0; queryNumber < this.numOfQueries; queryNumber++) {
+				current[queryNumber] = occurrences.firstOccurrence ( validBlock, queryNumber );
+				nextInWindow[queryNumber] = current[queryNumber];
+				longest[queryNumber] = new int[occurrences.endOfOccurrences ( validBlock, queryNumber ) -
+											   current[queryNumber]];
+
+				long start = occurrences.offset ( queryNumber, current[queryNumber] );
+
+				if (start >= lastStart) {
+					lastStart = start;
+					windowEnd = start + occurrences.length ( queryNumber, current[queryNumber] );
+				}
+
+				firstOccurrences.add ( queryNumber );
+			}
+
+			int[] windowOccurrences = new int[this.numOfQueries];
+
+			while (true) {
+				int first = firstOccurrences.poll ();
+
+				windowOccurrences[first] = current[first];
+				long sumOfLengths = occurrences.length ( first, current[first] );
+
+				for (int queryNumber = 0; queryNumber < this.numOfQueries; queryNumber++) {
+					if (queryNumber == first) { continue; }
+
+					int[] deque = longest[queryNumber];
+					int end = occurrences.endOfOccurrences ( validBlock, queryNumber );
+
+					// the occurrences that the window reached, an occurrence followed by a longer one is never used
+					for (; nextInWindow[queryNumber] < end &&
+						   occurrences.offset ( queryNumber, nextInWindow[queryNumber] ) <= lastStart;
+						 nextInWindow[queryNumber]++) {
+
+						int length = occurrences.length ( queryNumber, nextInWindow[queryNumber] );
+
+						while (longestTail[queryNumber] > longestHead[queryNumber] &&
+							   occurrences.length ( queryNumber, deque[longestTail[queryNumber] - 1] ) < length) {
+							longestTail[queryNumber]--;
+						}
+
+						deque[longestTail[queryNumber]++] = nextInWindow[queryNumber];
+					}
+
+					// the occurrences that the window left
+					while (deque[longestHead[queryNumber]] < current[queryNumber]) { longestHead[queryNumber]++; }
+
+					windowOccurrences[queryNumber] = deque[longestHead[queryNumber]];
+					sumOfLengths += occurrences.length ( queryNumber, windowOccurrences[queryNumber] );
+				}
+
+				long confidence = MultiWordResult.confidence ( occurrences.offset ( first, current[first] ), windowEnd,
+															   sumOfLengths );
+
+				if (windows.canEnter ( confidence, blockId ) && blockConfidences.add ( confidence )) {
+					windows.offer ( confidence, blockId, new Window ( blockId, windowOccurrences.clone () ) );
+				}
+
+				if (++current[first] == occurrences.endOfOccurrences ( validBlock, first )) { return; }
+
+				long start = occurrences.offset ( first, current[first] );
+
+				if (start >= lastStart) {
+					lastStart = start;
+					windowEnd = start + occurrences.length ( first, current[first] );
+				}
+
+				firstOccurrences.add ( first );
+			}
 		}
 
-		return new MultiWordResult ( this.queryList.toArray ( new String[0] ), words[0].getSrcBlk (), indexArray );
+		/*
+		create the result of a window.
+		 */
+		private MultiWordResult toResult(Window window) {
+			long[] locs = new long[this.numOfQueries];
+			int[] wordLengths = new int[this.numOfQueries];
+
+			for (int queryNumber = 0; queryNumber < this.numOfQueries; queryNumber++) {
+				locs[queryNumber] = this.aggregator.offset ( queryNumber, window.occurrences[queryNumber] );
+				wordLengths[queryNumber] = this.aggregator.length ( queryNumber, window.occurrences[queryNumber] );
+			}
+
+			return new MultiWordResult ( this.queryList.toArray ( new String[0] ), index.block ( window.blockId ),
+										 locs, wordLengths );
+		}
 	}
 
 	/*
-	get a set of Word objects matching a number given to each query word.
+	the score a relevance ranks by, more relevant ranks first.
 	 */
-	private HashSet<Word> matchesOfQueryNumber(int queryNumber) throws Exception {
+	private static long rankScore(double relevance) { return -Math.round ( relevance * RELEVANCE_SCALE ); }
 
-		HashSet<Word> resultByQuery = new HashSet<> ();
+	/*
+	the best score a relevance of at most the given bound can rank by.
+	 */
+	private static long upperScore(double relevanceBound) { return -(long) Math.ceil ( relevanceBound * RELEVANCE_SCALE ); }
 
-		String query = this.queryList.get ( queryNumber );
+	/*
+	insertion sort of the active query words by the block of their cursor, they are few and mostly in order.
+	 */
+	private static void sortByBlock(PostingsCursor[] cursors, int[] active, int numOfActive) {
+		for (int i = 1; i < numOfActive; i++) {
+			int queryNumber = active[i];
+			int j = i - 1;
 
-		for (WordAndQuery wordAndQuery: wordsFromBlock) {
-            if (wordAndQuery.query.equals(query)) {
-                resultByQuery.add(wordAndQuery.word);
-            }
-        }
-		return resultByQuery;
+			for (; j >= 0 && cursors[active[j]].blockId () > cursors[queryNumber].blockId (); j--) {
+				active[j + 1] = active[j];
+			}
+
+			active[j + 1] = queryNumber;
+		}
 	}
 
+	/*
+	a window of occurrences of all the query words in a block, one per query word, kept until it is known to be
+	among the final results.
+	 */
+	private static final class Window {
+
+		private final int blockId;
+		private final int[] occurrences;
 
+		private Window(int blockId, int[] occurrences) {
+			this.blockId = blockId;
+			this.occurrences = occurrences;
+		}
+	}
 }
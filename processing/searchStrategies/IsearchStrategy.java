@@ -11,13 +11,29 @@ import java.util.List;
 public interface IsearchStrategy {
 	/**
 	 * A Stemmer object to be used internally for manipulating words.
+	 * A Stemmer is not thread safe, searches that may run at once must use a Stemmer of their own.
 	 */
     final Stemmer stemmer = new Stemmer();
 
 	/**
-	 * The main abstract method - Search a quary string (could be multiple words) and return a result list.
+	 * The number of results a search returns when no other number is requested.
+	 */
+	int DEFAULT_MAX_RESULTS = 10;
+
+	/**
+	 * Search a quary string (could be multiple words) and return the best DEFAULT_MAX_RESULTS results.
 	 * @param query The query string to search for.
-	 * @return  A list of result objects
+	 * @return  A list of result objects, the best first.
+	 */
+	default List<? extends WordResult> search(String query) { return this.search ( query, DEFAULT_MAX_RESULTS ); }
+
+	/**
+	 * The main abstract method - Search a quary string (could be multiple words) and return a result list.
+	 * Implementations keep no state between calls, so a strategy can be searched from many threads at once.
+	 * The best results are collected in a TopResults, so a search can skip the text that can not improve them.
+	 * @param query         The query string to search for.
+	 * @param maxResults    The most results returned, must be positive.
+	 * @return  A list of result objects, the best first.
 	 */
-	List<? extends WordResult> search(String query);
+	List<? extends WordResult> search(String query, int maxResults);
 }
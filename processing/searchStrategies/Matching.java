@@ -0,0 +1,14 @@
+package processing.searchStrategies;
+
+/**
+ * The blocks a dictionary search matches a query in.
+ */
+public enum Matching {
+
+	/** the blocks that contain every query word. The default. */
+	ALL,
+
+	/** the blocks that contain any of the query words, ranked by their BM25 relevance whatever the Ranking is:
+	 * a block that misses a query word has no window of all of them to rank by proximity */
+	ANY
+}
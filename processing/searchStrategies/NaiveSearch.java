@@ -4,7 +4,6 @@ import processing.textStructure.Block;
 import processing.textStructure.Corpus;
 import processing.textStructure.Entry;
 import processing.textStructure.WordResult;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 /**
@@ -12,29 +11,35 @@ import java.util.List;
  * strategy.
  */
 public class NaiveSearch implements IsearchStrategy {
+	// matches are ranked by their order alone
+	private static final long FIRST_IN_ORDER = 0;
+
 	protected Corpus origin;
-	private List<WordResult> resultList;
 	private boolean isCaseSensitive;
 
 	public NaiveSearch(Corpus origin) {
 		this.origin = origin;
-		this.resultList = new ArrayList<>();
 		this.isCaseSensitive = true;
 	}
 
 	/**
-	 * The main search method to comply with the IsearchStrategy interface
+	 * The main search method to comply with the IsearchStrategy interface. Matches rank by their order in the
+	 * corpus, so the search ends as soon as maxResults matches were found.
 	 * @param query The query string to search for.
+	 * @param maxResults The most results returned.
 	 * @return  A list of wordResults
 	 */
 	@Override
-	public List<WordResult> search(String query) {
+	public List<WordResult> search(String query, int maxResults) {
+
+		// the results of this search only, so concurrent searches do not share results
+		TopResults<WordResult> resultList = new TopResults<>( maxResults );
 
 		//get entry iterator from corpus
 		Iterator<Entry> entryIterator = origin.iterator ();
 
 		//loop over entries
-		while (entryIterator.hasNext ()) {
+		while (entryIterator.hasNext () && !resultList.isFull ()) {
 
 			//get next entry
 			Entry entry = entryIterator.next ();
@@ -43,18 +48,27 @@ public class NaiveSearch implements IsearchStrategy {
 			Iterator<Block> blockIterator = entry.iterator ();
 
 			//loop over blocks
-			while (blockIterator.hasNext ()) {
+			while (blockIterator.hasNext () && !resultList.isFull ()) {
 				Block currentBlock = blockIterator.next ();
 
-				searchRAF(currentBlock, query);
+				searchRAF(currentBlock, query, resultList);
 			}
 		}
 
-		return this.resultList;
+		return resultList.toList ();
+	}
+
+	/**
+	 * Collect a match, ranked by its order in the corpus which is the number of matches found before it.
+	 * @param resultList the results of the search
+	 * @param match a match of the query
+	 */
+	protected static void addMatch(TopResults<WordResult> resultList, WordResult match) {
+		resultList.offer ( resultList.size (), FIRST_IN_ORDER, match );
 	}
 
 	// adds a WordResult for each match of "query" in the text in the given block
-	private void searchRAF(Block block, String query){
+	private void searchRAF(Block block, String query, TopResults<WordResult> resultList){
 
 		String text = block.toString ();
 
@@ -62,7 +76,7 @@ public class NaiveSearch implements IsearchStrategy {
 
 
 		// application of naive search of string (as shown in readme)
-		for(int i = 0; i < text.length () - querySize + 1; i++){
+		for(int i = 0; i < text.length () - querySize + 1 && !resultList.isFull (); i++){
 
 			int j;
 
@@ -75,7 +89,7 @@ public class NaiveSearch implements IsearchStrategy {
 				// if all chars were the same (break wasn't called) add result to list
 				String[] newList = new String[1];
 				newList[0] = query;
-				this.resultList.add(new WordResult(block, newList, i));
+				addMatch(resultList, new WordResult(block, newList, i));
 			}
 		}
 	}
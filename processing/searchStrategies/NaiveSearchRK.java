@@ -6,7 +6,6 @@ import processing.textStructure.Entry;
 import processing.textStructure.WordResult;
 
 import java.math.BigInteger;
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -16,8 +15,6 @@ import java.util.Random;
  */
 public class NaiveSearchRK extends NaiveSearch {
 
-    private static final int NUMBER_OF_WANTED_RESULTS = 10;
-
 	/**
 	 * Constuctor for the NaiveSearchRK class
 	 * @param origin
@@ -27,20 +24,21 @@ public class NaiveSearchRK extends NaiveSearch {
     }
 
 	/**
-	 * search a query and get a list of WordResult objects.
+	 * search a query and get a list of WordResult objects, the first maxResults matches in the corpus.
 	 * @param query The query string to search for.
+	 * @param maxResults The most results returned.
 	 * @return a list of WordResult objects.
 	 */
 	@Override
-    public List<WordResult> search(String query) {
+    public List<WordResult> search(String query, int maxResults) {
 
-        List<WordResult> results = new ArrayList<>();
+        TopResults<WordResult> results = new TopResults<>( maxResults );
 
         //get entry iterator from corpus
         Iterator<Entry> entryIterator = origin.iterator ();
 
         //loop over entries
-        while ( entryIterator.hasNext () && results.size() < NUMBER_OF_WANTED_RESULTS ) {
+        while ( entryIterator.hasNext () && !results.isFull () ) {
 
             //get next entry
             Entry entry = entryIterator.next ();
@@ -49,7 +47,7 @@ public class NaiveSearchRK extends NaiveSearch {
             Iterator<Block> blockIterator = entry.iterator ();
 
             //loop over blocks
-            while (blockIterator.hasNext ()) {
+            while (blockIterator.hasNext () && !results.isFull ()) {
                 Block currentBlock = blockIterator.next ();
 
 
@@ -57,13 +55,13 @@ public class NaiveSearchRK extends NaiveSearch {
             }
         }
 
-        return results;
+        return results.toList ();
     }
 
 	/*
 	search in a certain block
 	 */
-    private void searchBlock(Block blk, List<WordResult> results, String query) {
+    private void searchBlock(Block blk, TopResults<WordResult> results, String query) {
 
         char[] queryCharList = query.toCharArray();
         char[] blockCharArray = blk.toString().toCharArray();
@@ -100,7 +98,7 @@ public class NaiveSearchRK extends NaiveSearch {
         boolean passed; // = false
 
         int diff = blockCharNum - querySize;
-        for (i = 0; i <= diff; i++) {
+        for (i = 0; i <= diff && !results.isFull (); i++) {
             if (rolLHashArr[i] == queryFingerPrint) {
                 passed = true;
                 for (int k = 0; k < querySize; k++) {
@@ -111,7 +109,7 @@ public class NaiveSearchRK extends NaiveSearch {
                 }
 
                 if (passed) {
-                    results.add(new WordResult(blk, new String[]{query}, i));
+                    addMatch(results, new WordResult(blk, new String[]{query}, i));
                 }
             }
 
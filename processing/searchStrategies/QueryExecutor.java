@@ -0,0 +1,95 @@
+package processing.searchStrategies;
+
+import processing.textStructure.WordResult;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Runs queries on a pool of threads against one search strategy. The strategy (and the index behind it) is
+ * shared by all the queries, which is safe as search strategies keep the state of a search to the search.
+ */
+public class QueryExecutor implements AutoCloseable {
+
+	/** By default every available core gets a thread. */
+	public static final int DEFAULT_NUM_OF_THREADS = Runtime.getRuntime ().availableProcessors ();
+
+	private final IsearchStrategy searcher;
+	private final ExecutorService threadPool;
+
+	/**
+	 * constructor with a thread per available core
+	 * @param searcher - the search strategy the queries are searched with.
+	 */
+	public QueryExecutor(IsearchStrategy searcher) {
+		this ( searcher, DEFAULT_NUM_OF_THREADS );
+	}
+
+	/**
+	 * constructor
+	 * @param searcher      the search strategy the queries are searched with.
+	 * @param numOfThreads  the number of queries searched at once, values smaller than 1 are treated as 1.
+	 */
+	public QueryExecutor(IsearchStrategy searcher, int numOfThreads) {
+		this.searcher = searcher;
+		this.threadPool = Executors.newFixedThreadPool ( Math.max ( 1, numOfThreads ), runnable -> {
+			Thread thread = new Thread ( runnable );
+			thread.setDaemon ( true );
+			return thread;
+		} );
+	}
+
+	/**
+	 * Search a query on one of the threads.
+	 * @param query - the query string to search for.
+	 * @return the future result list of the search, a failed search throws its exception from get().
+	 */
+	public Future<List<? extends WordResult>> submit(String query) {
+		return this.submit ( query, IsearchStrategy.DEFAULT_MAX_RESULTS );
+	}
+
+	/**
+	 * Search a query on one of the threads.
+	 * @param query - the query string to search for.
+	 * @param maxResults - the most results returned.
+	 * @return the future result list of the search, a failed search throws its exception from get().
+	 */
+	public Future<List<? extends WordResult>> submit(String query, int maxResults) {
+		return this.threadPool.submit ( () -> this.searcher.search ( query, maxResults ) );
+	}
+
+	/**
+	 * Run a search of the caller on one of the threads, for callers that time or format the results of a search
+	 * on the thread that searched it.
+	 * @param search - searches with the search strategy of the executor.
+	 * @param <T> the type of the outcome of the search
+	 * @return the future outcome of the search, a failed search throws its exception from get().
+	 */
+	public <T> Future<T> submit(Function<IsearchStrategy, T> search) {
+		return this.threadPool.submit ( () -> search.apply ( this.searcher ) );
+	}
+
+	/**
+	 * @return the search strategy the queries are searched with
+	 */
+	public IsearchStrategy getSearcher() { return this.searcher; }
+
+	/**
+	 * Stop accepting queries and wait for the submitted ones to finish. If the calling thread is interrupted
+	 * while waiting, it returns early with its interrupt status set.
+	 */
+	@Override
+	public void close() {
+		this.threadPool.shutdown ();
+
+		try {
+			this.threadPool.awaitTermination ( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+		} catch (InterruptedException e) {
+			Thread.currentThread ().interrupt ();
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package processing.searchStrategies;
+
+/**
+ * The ways the results of a dictionary search can be ranked.
+ */
+public enum Ranking {
+
+	/** by the sum of the distances between the query words in a block, closer is better. The default. */
+	PROXIMITY,
+
+	/** by the Okapi BM25 relevance of a block to the query words: rarer words that occur more often in a
+	 * shorter block are better */
+	BM25
+}
@@ -0,0 +1,99 @@
+package processing.searchStrategies;
+
+import dataStructures.suffixarray.SubstringIndex;
+import dataStructures.suffixtree.SuffixTreeIndexer;
+import processing.textStructure.Block;
+import processing.textStructure.MultiWordResult;
+import processing.textStructure.WordResult;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Substring search strategy over a SubstringIndex of the normalized text of the blocks, a SuffixArrayIndex or
+ * an FmIndex (see SuffixArrayIndexer). The index finds all the occurrences of the normalized query. Matches rank
+ * by their order in the corpus, like the SuffixTreeSearch, so only the blocks of the first maxResults matches
+ * are read to find the offsets of the matches.
+ */
+public class SuffixArraySearch implements IsearchStrategy {
+
+	private static final int NO_TIE = 0;
+	private static final int NO_BLOCK = -1;
+
+	private final SubstringIndex index;
+	private final List<Block> blocks;
+
+	/**
+	 * constructor
+	 * @param index     the substring index of the normalized text of the blocks
+	 * @param blocks    the blocks by their id
+	 */
+	public SuffixArraySearch(SubstringIndex index, List<Block> blocks) {
+		this.index = index;
+		this.blocks = blocks;
+	}
+
+	/**
+	 * Search the normalized query as a substring of the normalized text of the blocks.
+	 * @param query The query string to search for.
+	 * @param maxResults The most results returned.
+	 * @return  A list of results, each highlighting the original text of its match, which may span lines.
+	 */
+	@Override
+	public List<WordResult> search(String query, int maxResults) {
+
+		// the first matches in the text, which is the order of the blocks and of the offsets in a block
+		TopResults<Integer> positions = new TopResults<> ( maxResults );
+
+		String key = SuffixTreeIndexer.normalize ( ByteBuffer.wrap ( query.getBytes ( StandardCharsets.ISO_8859_1 ) ),
+												   null ).trim ();
+
+		if (key.isEmpty ()) { return new ArrayList<> (); }
+
+		byte[] keyBytes = key.getBytes ( StandardCharsets.ISO_8859_1 );
+
+		this.index.forEachMatch ( keyBytes, position -> {
+			if (positions.canEnter ( position, NO_TIE )) { positions.offer ( position, NO_TIE, position ); }
+		} );
+
+		return this.toResults ( positions.toList (), key );
+	}
+
+	/*
+	create the results of matches by their positions in the text, in order. the normalized text of a block keeps
+	the offset of every char, so a match is mapped back to the bytes of the block it spans.
+	 */
+	private List<WordResult> toResults(List<Integer> positions, String key) {
+
+		List<WordResult> results = new ArrayList<> ( positions.size () );
+
+		int blockId = NO_BLOCK;
+		Block block = null;
+		int[] offsets = null;
+
+		for (int position : positions) {
+
+			if (blockId == NO_BLOCK || position >= this.index.blockStart ( blockId + 1 )) {
+				blockId = this.index.blockOf ( position );
+				block = this.blocks.get ( blockId );
+
+				ByteBuffer bytes = block.getBytes ();
+				offsets = new int[bytes.remaining () + 1];
+
+				SuffixTreeIndexer.normalize ( bytes, offsets );
+			}
+
+			int start = position - this.index.blockStart ( blockId );
+
+			int offset = offsets[start];
+			int matchEnd = offsets[start + key.length () - 1] + 1;
+
+			results.add ( new MultiWordResult ( new String[]{key}, block, new long[]{offset},
+												new int[]{matchEnd - offset} ) );
+		}
+
+		return results;
+	}
+}
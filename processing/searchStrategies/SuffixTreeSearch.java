@@ -0,0 +1,102 @@
+package processing.searchStrategies;
+
+import dataStructures.suffixtree.GeneralizedSuffixTree;
+import dataStructures.suffixtree.SuffixTreeIndexer;
+import processing.textStructure.Block;
+import processing.textStructure.MultiWordResult;
+import processing.textStructure.WordResult;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Substring search strategy over a GeneralizedSuffixTree of the normalized text of the blocks (see
+ * SuffixTreeIndexer). The tree gives every match of the normalized query, as its block and its position in the
+ * normalized text of the block, by walking the query and the nodes below it alone. Matches rank by their order
+ * in the corpus, so only the blocks of the first maxResults matches are read to find the offsets of the matches.
+ */
+public class SuffixTreeSearch implements IsearchStrategy {
+
+	private static final int NO_TIE = 0;
+	private static final int NO_BLOCK = -1;
+
+	private final GeneralizedSuffixTree tree;
+	private final List<Block> blocks;
+	private final int[] keyLengths;
+
+	/**
+	 * constructor
+	 * @param tree          the suffix tree of the normalized text of the blocks, keyed by block id.
+	 * @param blocks        the blocks by their id
+	 * @param keyLengths    the length of the key of every block in the tree, by block id
+	 */
+	public SuffixTreeSearch(GeneralizedSuffixTree tree, List<Block> blocks, int[] keyLengths) {
+		this.tree = tree;
+		this.blocks = blocks;
+		this.keyLengths = keyLengths;
+	}
+
+	/**
+	 * Search the normalized query as a substring of the normalized text of the blocks.
+	 * @param query The query string to search for.
+	 * @param maxResults The most results returned.
+	 * @return  A list of results, each highlighting the original text of its match, which may span lines.
+	 */
+	@Override
+	public List<WordResult> search(String query, int maxResults) {
+
+		// the first matches in the corpus, as their block id in the high int and their position in the low int
+		TopResults<Long> matches = new TopResults<> ( maxResults );
+
+		String key = SuffixTreeIndexer.normalize ( ByteBuffer.wrap ( query.getBytes ( StandardCharsets.ISO_8859_1 ) ),
+												   null ).trim ();
+
+		if (key.isEmpty ()) { return new ArrayList<> (); }
+
+		this.tree.searchOccurrences ( key, (blockId, suffixLength) -> {
+			long match = ((long) blockId << Integer.SIZE) | (this.keyLengths[blockId] - suffixLength);
+
+			if (matches.canEnter ( match, NO_TIE )) { matches.offer ( match, NO_TIE, match ); }
+		} );
+
+		return this.toResults ( matches.toList (), key );
+	}
+
+	/*
+	create the results of matches in order. the normalized text of a block keeps the offset of every char, so a
+	match is mapped back to the bytes of the block it spans.
+	 */
+	private List<WordResult> toResults(List<Long> matches, String key) {
+
+		List<WordResult> results = new ArrayList<> ( matches.size () );
+
+		int blockId = NO_BLOCK;
+		Block block = null;
+		int[] offsets = null;
+
+		for (long match : matches) {
+
+			if ((int) (match >>> Integer.SIZE) != blockId) {
+				blockId = (int) (match >>> Integer.SIZE);
+				block = this.blocks.get ( blockId );
+
+				ByteBuffer bytes = block.getBytes ();
+				offsets = new int[bytes.remaining () + 1];
+
+				SuffixTreeIndexer.normalize ( bytes, offsets );
+			}
+
+			int start = (int) match;
+
+			int offset = offsets[start];
+			int end = offsets[start + key.length () - 1] + 1;
+
+			results.add ( new MultiWordResult ( new String[]{key}, block, new long[]{offset},
+												new int[]{end - offset} ) );
+		}
+
+		return results;
+	}
+}
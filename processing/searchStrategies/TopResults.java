@@ -0,0 +1,155 @@
+package processing.searchStrategies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Collects the best results of a single search, at most a fixed number of them. A result is ranked by a
+ * primitive score, the lower the better, and ties are broken by a second primitive (the lower first).
+ * The results are kept in a heap with the worst of them on top, so a strategy can ask whether a score can
+ * still enter before it creates the result, and skip whole blocks whose best possible score can not.
+ * @param <R> the type of the results.
+ */
+public class TopResults<R> {
+
+	static final String EXCEPTION_NO_RESULTS = "the number of results must be positive, received %d";
+
+	private static final int TOP = 0;
+
+	private final long[] scores;
+	private final long[] tieBreakers;
+	private final Object[] results;
+	private int size;
+
+	/**
+	 * constructor
+	 * @param maxResults    the number of results kept
+	 */
+	public TopResults(int maxResults) {
+		if (maxResults < 1) {
+			throw new IllegalArgumentException ( String.format ( EXCEPTION_NO_RESULTS, maxResults ) );
+		}
+
+		this.scores = new long[maxResults];
+		this.tieBreakers = new long[maxResults];
+		this.results = new Object[maxResults];
+	}
+
+	/**
+	 * @return true if as many results as are kept were collected, so a result must beat the worst to enter.
+	 */
+	public boolean isFull() { return this.size == this.scores.length; }
+
+	/**
+	 * @return the number of results collected
+	 */
+	public int size() { return this.size; }
+
+	/**
+	 * Check if a result would enter before creating it.
+	 * @param score         the score of the result, lower is better.
+	 * @param tieBreaker    ranks results of the same score, lower is better.
+	 * @return true if a result of this score and tie breaker would be kept.
+	 */
+	public boolean canEnter(long score, long tieBreaker) {
+		return !this.isFull () || isBetter ( score, tieBreaker, TOP );
+	}
+
+	/**
+	 * Offer a result, it is kept if it is among the best so far, and the worst one is dropped if needed.
+	 * @param score         the score of the result, lower is better.
+	 * @param tieBreaker    ranks results of the same score, lower is better.
+	 * @param result        the result
+	 * @return true if the result was kept.
+	 */
+	public boolean offer(long score, long tieBreaker, R result) {
+
+		if (!this.isFull ()) {
+			this.set ( this.size, score, tieBreaker, result );
+			this.siftUp ( this.size++ );
+			return true;
+		}
+
+		if (!isBetter ( score, tieBreaker, TOP )) { return false; }
+
+		this.set ( TOP, score, tieBreaker, result );
+		this.siftDown ( TOP );
+		return true;
+	}
+
+	/**
+	 * @return the collected results, the best first.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<R> toList() {
+
+		Integer[] order = new Integer[this.size];
+
+		for (int i = 0; i < this.size; i++) { order[i] = i; }
+
+		Arrays.sort ( order, Comparator.<Integer>comparingLong ( i -> this.scores[i] )
+									   .thenComparingLong ( i -> this.tieBreakers[i] ) );
+
+		List<R> sorted = new ArrayList<> ( this.size );
+
+		for (int i : order) { sorted.add ( (R) this.results[i] ); }
+
+		return sorted;
+	}
+
+	/*
+	true if a score and tie breaker rank better than the result at an index of the heap.
+	 */
+	private boolean isBetter(long score, long tieBreaker, int index) {
+		return score < this.scores[index] || (score == this.scores[index] && tieBreaker < this.tieBreakers[index]);
+	}
+
+	/*
+	move a result up the heap while it is worse than its parent.
+	 */
+	private void siftUp(int index) {
+		while (index > TOP) {
+			int parent = (index - 1) / 2;
+
+			if (!isBetter ( this.scores[parent], this.tieBreakers[parent], index )) { return; }
+
+			this.swap ( index, parent );
+			index = parent;
+		}
+	}
+
+	/*
+	move a result down the heap while one of its children is worse than it.
+	 */
+	private void siftDown(int index) {
+		while (true) {
+			int worst = index;
+
+			for (int child = 2 * index + 1; child <= 2 * index + 2 && child < this.size; child++) {
+				if (isBetter ( this.scores[worst], this.tieBreakers[worst], child )) { worst = child; }
+			}
+
+			if (worst == index) { return; }
+
+			this.swap ( index, worst );
+			index = worst;
+		}
+	}
+
+	private void set(int index, long score, long tieBreaker, Object result) {
+		this.scores[index] = score;
+		this.tieBreakers[index] = tieBreaker;
+		this.results[index] = result;
+	}
+
+	private void swap(int first, int second) {
+		long score = this.scores[first];
+		long tieBreaker = this.tieBreakers[first];
+		Object result = this.results[first];
+
+		this.set ( first, this.scores[second], this.tieBreakers[second], this.results[second] );
+		this.set ( second, score, tieBreaker, result );
+	}
+}
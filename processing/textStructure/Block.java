@@ -3,19 +3,28 @@ package processing.textStructure;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * This class represents an arbitrary block of text within a file
+ * The text is read from a memory mapped view of the file that is shared by all the blocks of an Entry, so
+ * reading it needs no system calls and no seeking.
  */
 public class Block implements Serializable {
 	public static final long serialVersionUID = 1L;
 
+	private static final byte LINE_FEED = '\n';
+	private static final byte CARRIAGE_RETURN = '\r';
+
 	private long startIdx;                  //index within the file where the block begins
 	private long endIdx;                    //index within the file where the block ends
 	private transient RandomAccessFile inputFile;     //the RAF object pointing to the physical file in the file
     // system
+	private transient ByteBuffer fileBytes;     //a read only view of the whole file, set by the Entry class
 	private String fileName;
 	private List<String> metaData;
 
@@ -50,7 +59,9 @@ public class Block implements Serializable {
 	}
 
 	/**
-	 * @return the RAF object for this block
+	 * The RAF is shared by all the blocks of the entry and this moves its file pointer, so searches that may run
+	 * at once should read the block through getBytes() instead.
+	 * @return the RAF object for this block, positioned at the start of the block.
 	 */
 	public RandomAccessFile getRAF () throws IOException{
 		this.inputFile.seek ( this.startIdx );
@@ -76,25 +87,80 @@ public class Block implements Serializable {
 	}
 
 	/**
-	 * Convert an abstract block into a string
-	 * @return  string representation of the block
+	 * Get the bytes of the block without copying them
+	 * @return  a read only buffer over the bytes of the block, positioned at the start of the block.
 	 */
-	@Override
-	public String toString() {
-		//create a buffer for the number of chars in the block
-		byte[] buffer = new byte[(int) (this.endIdx - this.startIdx)];
+	public ByteBuffer getBytes() {
+		if (this.fileBytes == null) { return this.readBytes (); }
+
+		return this.slice ( this.startIdx, this.endIdx - this.startIdx );
+	}
+
+	/*
+	read the bytes of a block that was not handed to its Entry yet (while the file is being parsed) through a
+	positional read of the RAF channel, which does not move the file pointer the parser is using.
+	 */
+	private ByteBuffer readBytes() {
+		ByteBuffer buffer = ByteBuffer.allocate ( (int) (this.endIdx - this.startIdx) );
 
-		// read all of the bytes in the block to byte array
-		try{
-			this.inputFile.seek ( this.startIdx );
-			this.inputFile.read(buffer);
+		try {
+			while (buffer.hasRemaining () &&
+				   this.inputFile.getChannel ().read ( buffer, this.startIdx + buffer.position () ) >= 0) { }
 		} catch (IOException e) {
 			//not supposed to happen
 			System.out.println ("not suppposed to happen");
 		}
 
+		buffer.flip ();
+
+		return buffer;
+	}
+
+	/**
+	 * Get a part of the text of the block
+	 * @param offset    offset of the text within the block
+	 * @param length    the number of bytes of the text
+	 * @return  the text as a String
+	 */
+	public String getText(long offset, int length) {
+		return Charset.defaultCharset ().decode ( this.slice ( this.startIdx + offset, length ) ).toString ();
+	}
+
+	/*
+	a slice of the mapped file, a parsing rule may end the last block after the end of the file so the slice
+	stops at the end of the file like a read from the RAF would.
+	 */
+	private ByteBuffer slice(long start, long length) {
+		int end = (int) Math.min ( start + length, this.fileBytes.limit () );
+
+		return this.fileBytes.slice ( (int) start, Math.max ( 0, end - (int) start ) );
+	}
+
+	/**
+	 * Get the line of the file that starts at an offset within the block, like RandomAccessFile.readLine().
+	 * The line may go on after the end of the block.
+	 * @param offset    offset of the start of the line within the block
+	 * @return  the line without its line terminator
+	 */
+	public String getLine(long offset) {
+		int start = (int) (this.startIdx + offset);
+		int end = start;
+
+		while (end < this.fileBytes.limit () && this.fileBytes.get ( end ) != LINE_FEED &&
+			   this.fileBytes.get ( end ) != CARRIAGE_RETURN) {
+			end++;
+		}
+
+		return StandardCharsets.ISO_8859_1.decode ( this.slice ( start, end - start ) ).toString ();
+	}
 
-		return new String ( buffer );
+	/**
+	 * Convert an abstract block into a string
+	 * @return  string representation of the block
+	 */
+	@Override
+	public String toString() {
+		return Charset.defaultCharset ().decode ( this.getBytes () ).toString ();
 	}
 
 	/**
@@ -117,5 +183,13 @@ public class Block implements Serializable {
     void updateRAF(RandomAccessFile RAF){
 	    this.inputFile = RAF;
     }
+
+	/**
+	 * used to set the mapped view of the file by the Entry class, together with the RAF.
+	 * @param fileBytes - a read only buffer over the whole file.
+	 */
+	void setFileBytes(ByteBuffer fileBytes){
+		this.fileBytes = fileBytes;
+	}
 }
 
@@ -1,6 +1,7 @@
 package processing.textStructure;
 
 import processing.parsingRules.*;
+import utils.ChecksumType;
 import utils.MD5;
 
 import java.io.FileNotFoundException;
@@ -10,6 +11,10 @@ import java.nio.file.*;
 import java.nio.file.FileSystems.*;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 /**`
@@ -18,12 +23,15 @@ import java.util.stream.Stream;
 public class Corpus implements Iterable<Entry>, Serializable {
 	public static final long serialVersionUID = 1L;
 
+	/** Indexers keep their index files in the corpus folder, files with this suffix are not entries. */
+	public static final String INDEX_FILE_SUFFIX = ".cache";
 
 
     private List<Entry> entryList;
     private IparsingRule parsingRule;
     private String corpusPath;
     private ArrayList<Path> pathsList;
+    private ChecksumType checksumType;
 
     //made this because i wanted to make sure the sorting was lexicographical
     private static final Comparator<Entry> LEXICOMPARATOR =
@@ -42,6 +50,7 @@ public class Corpus implements Iterable<Entry>, Serializable {
         this.entryList = new LinkedList<>();
         this.corpusPath = getCorrectPath(path);
         this.pathsList = new ArrayList<>();
+        this.checksumType = ChecksumType.MD5;
 
         this.addAllEntriesToList();
     }
@@ -63,6 +72,18 @@ public class Corpus implements Iterable<Entry>, Serializable {
      */
     public IparsingRule getParsingRule() { return this.parsingRule; }
 
+    /**
+     * Return the checksum the files of this corpus are fingerprinted with
+     * @return the checksum type, MD5 unless set otherwise.
+     */
+    public ChecksumType getChecksumType() { return this.checksumType; }
+
+    /**
+     * Set the checksum the files of this corpus are fingerprinted with
+     * @param checksumType the checksum type
+     */
+    public void setChecksumType(ChecksumType checksumType) { this.checksumType = checksumType; }
+
 
     /**
      * Iterate over Entry objects in the Corpus
@@ -77,17 +98,60 @@ public class Corpus implements Iterable<Entry>, Serializable {
      * @return A string representing the checksum of the corpus.
      * @throws IOException if any file is invalid.
      */
-    public String getChecksum() throws IOException {
+    public String getChecksum() throws IOException { return checksumOf ( this.getFingerprints ( null, 1 ) ); }
+
+    /**
+     * Return the fingerprint of every entry in the corpus, in iteration order. Only the files whose size,
+     * modification time or file key changed since their previous fingerprint are read, on a pool of workers.
+     * @param previous      the previous fingerprint of every entry in iteration order, null where an entry has
+     *                      none. The whole list can be null.
+     * @param numOfWorkers  the number of files read at once
+     * @return A list of the fingerprints of the files in the corpus.
+     * @throws IOException if any file is invalid.
+     */
+    public List<Fingerprint> getFingerprints(List<Fingerprint> previous, int numOfWorkers) throws IOException {
+
+        ExecutorService workerPool = Executors.newFixedThreadPool ( Math.max ( 1, numOfWorkers ) );
+
+        try {
+            List<Future<Fingerprint>> pending = new ArrayList<> ( this.entryList.size () );
+
+            int entryNumber = 0;
+
+            for (Entry entry: this.entryList) {
+
+                Fingerprint previousFingerprint = (previous == null) ? null : previous.get ( entryNumber );
+
+                pending.add ( workerPool.submit ( () -> entry.getFingerprint ( this.checksumType,
+                                                                               previousFingerprint ) ) );
+                entryNumber++;
+            }
+
+            List<Fingerprint> fingerprints = new ArrayList<> ( pending.size () );
+
+            for (Future<Fingerprint> fingerprint : pending) { fingerprints.add ( fingerprint.get () ); }
+
+            return fingerprints;
+
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException ( "fingerprinting failed: " + e.getMessage () );
+        } finally {
+            workerPool.shutdown ();
+        }
+    }
+
+    /**
+     * Combine the fingerprints of the entries to the checksum of the corpus, the way getChecksum() does.
+     * @param fingerprints  the fingerprint of every entry, in iteration order.
+     * @return A string representing the checksum of the corpus.
+     */
+    public static String checksumOf(List<Fingerprint> fingerprints) {
     	//init string builder
     	StringBuilder concatChecksum = new StringBuilder (  );
 
     	//for each entry in the list
-		for (Entry entry: this.entryList) {
-
-		    String content = new String(Files.readAllBytes(Paths.get(entry.getEntryFilePath())));
+		for (Fingerprint fingerprint: fingerprints) { concatChecksum.append ( fingerprint.getChecksum () ); }
 
-            concatChecksum.append(MD5.getMd5(content));
-		}
 		//return the md5 checksum of the concatenated checksums.
 		return MD5.getMd5 ( concatChecksum.toString () );
     }
@@ -118,7 +182,9 @@ public class Corpus implements Iterable<Entry>, Serializable {
         } else {
             try (Stream<Path> walk = Files.walk(nioPath)) {
 
-                walk.filter(Files::isRegularFile).forEach(file -> this.entryList.add(new Entry(file.toAbsolutePath().toString(), this.parsingRule)));
+                walk.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().endsWith(INDEX_FILE_SUFFIX))
+                    .forEach(file -> this.entryList.add(new Entry(file.toAbsolutePath().toString(), this.parsingRule)));
 
             } catch (FileNotFoundException e) { }
         }
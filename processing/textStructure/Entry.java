@@ -2,8 +2,16 @@ package processing.textStructure;
 
 import processing.parsingRules.IparsingRule;
 import processing.textStructure.*;
+import utils.ChecksumType;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -20,6 +28,7 @@ public class Entry implements Iterable<Block>, Serializable {
     private final String entryFilePath;
     private final IparsingRule parsingRule;
     private transient RandomAccessFile randomAccessFile;
+    private transient MappedByteBuffer mappedFile;
 
 
     /**
@@ -35,12 +44,15 @@ public class Entry implements Iterable<Block>, Serializable {
     }
 
     /** Used to order the Entry to initialize the blocks by using the parsing rule. */
-    void populate() throws IOException {
+    public void populate() throws IOException {
         this.createRAF();
 
         this.blocks.addAll ( this.parsingRule.parsedFile ( this.randomAccessFile ) );
 
-        for (Block block : this.blocks) { block.setFileName ( this.entryFilePath ); }
+        for (Block block : this.blocks) {
+            block.setFileName ( this.entryFilePath );
+            block.setFileBytes ( this.mappedFile );
+        }
 	}
 
 
@@ -57,16 +69,79 @@ public class Entry implements Iterable<Block>, Serializable {
      * ( beacuse it is not serializable */
     void updateRAF() throws IOException{
 		createRAF();
-		blocks.forEach(block -> block.updateRAF(this.randomAccessFile));
+		blocks.forEach(block -> {
+		    block.updateRAF(this.randomAccessFile);
+		    block.setFileBytes(this.mappedFile);
+        });
     	}
 
 
-    String getEntryFilePath() {
+    /**
+     * @return the path to the file this entry represents
+     */
+    public String getEntryFilePath() {
         return entryFilePath;
     }
 
-    /** initiates an RAF from the path */
-    private void createRAF() throws FileNotFoundException{ this.randomAccessFile = new RandomAccessFile ( this.entryFilePath , "r"); }
+    /**
+     * @return a read only memory mapped view of the whole file this entry represents, shared by its blocks.
+     */
+    public MappedByteBuffer getMappedFile() {
+        return this.mappedFile;
+    }
+
+    /**
+     * Return the fingerprint of the file this entry represents. The content of the file is only read when its
+     * size, modification time or file key differ from the previous fingerprint.
+     * @param checksumType  the checksum to digest the content with
+     * @param previous      a previous fingerprint of the file, or null if there is none.
+     * @return The previous fingerprint if the file did not change, a new one otherwise.
+     * @throws IOException if the file is invalid.
+     */
+    public Fingerprint getFingerprint(ChecksumType checksumType, Fingerprint previous) throws IOException {
+        Path path = Paths.get ( this.entryFilePath );
+
+        BasicFileAttributes attributes = Files.readAttributes ( path, BasicFileAttributes.class );
+
+        long lastModified = attributes.lastModifiedTime ().to ( TimeUnit.NANOSECONDS );
+        String fileKey = (attributes.fileKey () == null) ? "" : attributes.fileKey ().toString ();
+
+        if (previous != null && previous.hasAttributes ( attributes.size (), lastModified, fileKey )) {
+            return previous;
+        }
+
+        return new Fingerprint ( attributes.size (), lastModified, fileKey, checksumType.checksum ( path ) );
+    }
+
+    /**
+     * Create a Block of this entry from a location kept in an index file. Used instead of populate() when the
+     * index of the corpus is read from a file, so only the blocks that are actually needed are created.
+     * @param startIdx  start index of the block within the file
+     * @param endIdx    end index of the block within the file
+     * @param metaData  the metadata of the block
+     * @return the Block, it is not added to the blocks of this entry.
+     */
+    public Block restoreBlock(long startIdx, long endIdx, List<String> metaData) {
+        Block block = new Block ( this.randomAccessFile, startIdx, endIdx );
+
+        block.setFileName ( this.entryFilePath );
+        block.setFileBytes ( this.mappedFile );
+        block.setMetadata ( metaData );
+
+        return block;
+    }
+
+    /** initiates an RAF from the path, and maps the file to memory through its channel. The file is opened
+     * once: an entry that was populated keeps its RAF when it is updated, and no RAF is left open unused. */
+    private void createRAF() throws IOException {
+        if (this.randomAccessFile != null) { return; }
+
+        this.randomAccessFile = new RandomAccessFile ( this.entryFilePath , "r");
+
+        FileChannel channel = this.randomAccessFile.getChannel ();
+
+        this.mappedFile = channel.map ( FileChannel.MapMode.READ_ONLY, 0, channel.size () );
+    }
 
 
 }
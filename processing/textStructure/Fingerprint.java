@@ -0,0 +1,72 @@
+package processing.textStructure;
+
+/**
+ * The fingerprint of the file of an Entry: its size, modification time and file key (the inode on most file
+ * systems) which are cheap to read, and the checksum of its content which is not.
+ * A file whose cheap attributes did not change is assumed to have the same content, so its checksum is only
+ * computed again when they do.
+ */
+public class Fingerprint {
+
+    private final long size;
+    private final long lastModified;
+    private final String fileKey;
+    private final String checksum;
+
+    /**
+     * constructor for a Fingerprint
+     * @param size          the size of the file in bytes
+     * @param lastModified  the modification time of the file in nanoseconds
+     * @param fileKey       the file key of the file, an empty String if the file system has none.
+     * @param checksum      the checksum of the content of the file
+     */
+    public Fingerprint(long size, long lastModified, String fileKey, String checksum) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.fileKey = fileKey;
+        this.checksum = checksum;
+    }
+
+    /**
+     * @return true if the cheap attributes of the file are the same as given
+     */
+    public boolean hasAttributes(long size, long lastModified, String fileKey) {
+        return this.size == size && this.lastModified == lastModified && this.fileKey.equals ( fileKey );
+    }
+
+    /**
+     * @return true if the other fingerprint has the same attributes and checksum
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Fingerprint)) { return false; }
+
+        Fingerprint otherFingerprint = (Fingerprint) other;
+
+        return otherFingerprint.hasAttributes ( this.size, this.lastModified, this.fileKey ) &&
+               this.checksum.equals ( otherFingerprint.checksum );
+    }
+
+    @Override
+    public int hashCode() { return this.checksum.hashCode (); }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long getSize() { return this.size; }
+
+    /**
+     * @return the modification time of the file in nanoseconds
+     */
+    public long getLastModified() { return this.lastModified; }
+
+    /**
+     * @return the file key of the file, an empty String if the file system has none.
+     */
+    public String getFileKey() { return this.fileKey; }
+
+    /**
+     * @return the checksum of the content of the file
+     */
+    public String getChecksum() { return this.checksum; }
+}
@@ -6,6 +6,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -18,6 +19,9 @@ public class MultiWordResult extends WordResult implements Comparable<MultiWordR
 	private static final String SPACING = "			";
 	private static final String NEW_LINE = "\n";
 	private static final int FIRST_INDEX = 0;
+	private static final byte SPACE = ' ';
+	private static final byte LINE_FEED = '\n';
+	private static final byte CARRIAGE_RETURN = '\r';
 
 	private long[] sortedWordEndings;
 	private long blockOffset;
@@ -36,57 +40,66 @@ public class MultiWordResult extends WordResult implements Comparable<MultiWordR
 	 * @param locs  The indices of the words in the block
 	 */
 	public MultiWordResult(String[] query, Block block, long[] locs) throws Exception {
+		this(query, block, locs, wordLengths ( block.getBytes (), locs ));
+	}
+
+	/**
+	 * Constructor for words whose lengths are known (from the postings of an index), the result is scored
+	 * without reading the block.
+	 * @param query     The list of query words
+	 * @param block     The block where this result came from
+	 * @param locs      The indices of the words in the block
+	 * @param lengths   The lengths of the words, in the order of locs
+	 */
+	public MultiWordResult(String[] query, Block block, long[] locs, int[] lengths) {
 		this(block, query, getBlockOffset (locs));
 
-		this.wordPositions = locs;
+		this.wordPositions = locs.clone ();
+
+		this.sortedWordEndings = new long[locs.length];
 
-		Arrays.sort ( this.wordPositions );
+		int[] order = sortedOrder ( locs );
 
-		this.sortedWordEndings = this.wordPositions.clone ();
+		for (int i = 0; i < order.length; i++) {
+			this.wordPositions[i] = locs[order[i]];
+			this.sortedWordEndings[i] = locs[order[i]] + lengths[order[i]];
+		}
 
 		this.calcConfidence ();
 	}
 
+	/**
+	 * The confidence of a window of words: the sum of the distances between the words, which is the length of
+	 * the window less the lengths of the words in it.
+	 * @param windowStart   the index where the first word starts
+	 * @param windowEnd     the index where the word that starts last ends
+	 * @param sumOfLengths  the sum of the lengths of the words
+	 * @return the confidence, lower is better.
+	 */
+	public static long confidence(long windowStart, long windowEnd, long sumOfLengths) {
+		return windowEnd - windowStart - sumOfLengths;
+	}
 
 	/**
 	 * Calculate the confidence level of a result, defined by the sum of word distances.
-	 * If i could change the public API i would have made the constructor of this class receive word objects
-	 * so it would be easier to mannage
 	 */
-	private void calcConfidence() throws Exception {
-		long sum = 0;
-
-		long blockAbsoluteLocation = this.location.getStartIndex ();
-
-		int prevWordEnd = (int) this.wordPositions[FIRST_INDEX];
-
-
-		RandomAccessFile blockRAF = this.location.getRAF ();
-
-		// for each Index of word beginning check where the word ends and calculate the distance to the next
-		// word -----I SWEAR i would have used RandomAccessFile methods like .read() if they had worked for
-		// me---
-		for(int i = 0 ; i < this.wordPositions.length; i++) {
-
-			long wordPosition = this.wordPositions[i];
-
-			blockRAF.seek ( blockAbsoluteLocation + wordPosition );
-
-			String s = blockRAF.readLine ();
-
-			int wordLength = s.split ( " " )[FIRST_INDEX].length ();
-
-			sum += ((int) wordPosition) - prevWordEnd;
-
-			prevWordEnd = ((int) wordPosition) + wordLength;
-
-			this.sortedWordEndings[i] = prevWordEnd;
+	private void calcConfidence() {
+		long sumOfLengths = 0;
 
+		for (int i = 0; i < this.wordPositions.length; i++) {
+			sumOfLengths += this.sortedWordEndings[i] - this.wordPositions[i];
 		}
 
-		this.confidence = (int) sum;
+		this.confidence = (int) confidence ( this.wordPositions[FIRST_INDEX],
+											 this.sortedWordEndings[this.wordPositions.length - 1], sumOfLengths );
 	}
 
+	/**
+	 * getter for the confidence of the result, the sum of the distances between its words. lower is better.
+	 * @return int confidence
+	 */
+	public int getConfidence() { return this.confidence; }
+
 	/**
 	 * Comparator for multy-word results
 	 * @param o The other result to compare against
@@ -150,6 +163,47 @@ public class MultiWordResult extends WordResult implements Comparable<MultiWordR
 		return smallestNum;
 	}
 
+	/*
+	the indices of positions in the order of the positions.
+	 */
+	private static int[] sortedOrder(long[] positions) {
+		Integer[] order = new Integer[positions.length];
+
+		for (int i = 0; i < positions.length; i++) { order[i] = i; }
+
+		Arrays.sort ( order, Comparator.comparingLong ( i -> positions[i] ) );
+
+		return Arrays.stream ( order ).mapToInt ( Integer::intValue ).toArray ();
+	}
+
+	/*
+	the lengths of the words at positions in the block, each up to the next space or line break.
+	 */
+	private static int[] wordLengths(ByteBuffer blockBytes, long[] positions) {
+		int[] lengths = new int[positions.length];
+
+		for (int i = 0; i < positions.length; i++) { lengths[i] = wordLength ( blockBytes, (int) positions[i] ); }
+
+		return lengths;
+	}
+
+	/*
+	the number of bytes from a position in the block to the next space or line break.
+	 */
+	private static int wordLength(ByteBuffer blockBytes, int wordPosition) {
+		int end = wordPosition;
+
+		while (end < blockBytes.limit ()) {
+			byte current = blockBytes.get ( end );
+
+			if (current == SPACE || current == LINE_FEED || current == CARRIAGE_RETURN) { break; }
+
+			end++;
+		}
+
+		return end - wordPosition;
+	}
+
 	/*
 	getter for the absolute index in the file (long) by a relative idex in the block (long).
 	 */
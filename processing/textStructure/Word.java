@@ -31,25 +31,19 @@ public class Word implements Serializable {
 	 * Length of the word
 	 */
 	private final int length;
-	/**
-	 * Hash of the word - for quick dictionary querying without unnecessary extraction and conversion.
-	 */
-	private final int wordHash;
-
 	private String extractedWord;
 
 	/**
-	 * The constructor.
+	 * The constructor. Does not read the file, the word is extracted only when it is needed.
 	 *
 	 * @param source   The Block where this word resides.
 	 * @param startIdx The offset within the block where the word starts.
 	 * @param endIdx   The  offset within the block where the word ends.
 	 */
-	public Word(Block source, long startIdx, long endIdx) throws Exception {
+	public Word(Block source, long startIdx, long endIdx) {
 		this.srcBlk = source;
 		this.srcBlkOffset = startIdx;
 		this.length = (int) (endIdx - startIdx);
-		this.wordHash = extractWord().hashCode();
 		this.extractedWord = null;
 	}
 
@@ -72,17 +66,8 @@ public class Word implements Serializable {
 		if (extractedWord == null) {
 
 			try {
-				RandomAccessFile randomAccessFile = this.srcBlk.getRAF ();
-
-				randomAccessFile.seek ( this.srcBlkOffset + this.srcBlk.getStartIndex ());
-
-				String readLine = (randomAccessFile.readLine ());
-
-				this.extractedWord = readLine.substring ( 0,  this.length );
-
+				this.extractedWord = this.srcBlk.getText ( this.srcBlkOffset, this.length );
 
-			} catch (IOException e) {
-				throw new IOException ( "File could not be read due to IO error." );
 			} catch (NullPointerException e) {
 				throw new NullPointerException ( "Attempted to read file into null byte array." );
 			} catch ( IndexOutOfBoundsException e) {
@@ -96,12 +81,12 @@ public class Word implements Serializable {
 	}
 
 	/**
-	 * Get the hashCode of the word
+	 * Get the hashCode of the word, extracts the word from the file on first use.
 	 *
 	 * @return The wordHash.
 	 */
 	public int getHash() {
-		return this.wordHash;
+		return this.toString ().hashCode ();
 	}
 
 	/**
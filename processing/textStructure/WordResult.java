@@ -61,13 +61,9 @@ public class WordResult {
 	 * @throws IOException - in case the file doesn't exist.
 	 */
 	public String resultToString() throws IOException {
-		RandomAccessFile blockRAF = this.location.getRAF ();
-
-		blockRAF.seek ( this.idxInBlk );
-
 		StringBuilder s = new StringBuilder();
 
-		s.append(blockRAF.readLine ());
+		s.append(this.location.getLine ( this.idxInBlk ));
 
 		s.insert( (this.content[0].length()), ANSI_RESET);
 
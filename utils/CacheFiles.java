@@ -0,0 +1,133 @@
+package utils;
+
+import processing.textStructure.Corpus;
+import processing.textStructure.Entry;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+/**
+ * The pieces of the binary cache files that all the indexes share: strings, and the paths of the entries.
+ * Strings are an int length followed by UTF-8 bytes, all numbers are big-endian.
+ *
+ * A cache file is read in place, so whatever it holds is checked against the size of the file before it is
+ * used: a cache file that was cut short or corrupted is then rebuilt instead of failing the run.
+ */
+public class CacheFiles {
+
+	public static final String CORRUPT_FILE_MSG = "the cache file is corrupt";
+
+	private static final int INT_BYTES = Integer.BYTES;
+
+	/**
+	 * write a string as its UTF-8 length and bytes.
+	 * @param out       the stream to write to
+	 * @param string    the string
+	 * @throws IOException if the stream could not be written.
+	 */
+	public static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes ( StandardCharsets.UTF_8 );
+		out.writeInt ( bytes.length );
+		out.write ( bytes );
+	}
+
+	/**
+	 * get a stream that writes to a buffer, from its position on.
+	 * @param buffer    the buffer, it has to have room for all that is written
+	 * @return the stream
+	 */
+	public static DataOutputStream bufferStream(ByteBuffer buffer) {
+		return new DataOutputStream ( new OutputStream () {
+			@Override
+			public void write(int b) { buffer.put ( (byte) b ); }
+
+			@Override
+			public void write(byte[] b, int off, int len) { buffer.put ( b, off, len ); }
+		} );
+	}
+
+	/**
+	 * read a string written by writeString() at an absolute position.
+	 * @param buffer    the buffer holding the cache file
+	 * @param position  the position of the string in the buffer
+	 * @return the string
+	 * @throws IOException if the string does not lie within the buffer.
+	 */
+	public static String readString(ByteBuffer buffer, int position) throws IOException {
+		checkSection ( buffer, position, INT_BYTES );
+		checkSection ( buffer, (long) position + INT_BYTES, buffer.getInt ( position ) );
+
+		byte[] bytes = new byte[buffer.getInt ( position )];
+
+		for (int i = 0; i < bytes.length; i++) { bytes[i] = buffer.get ( position + INT_BYTES + i ); }
+
+		return new String ( bytes, StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * @param string    a string
+	 * @return the number of bytes writeString() takes for the string.
+	 */
+	public static int stringSize(String string) {
+		return INT_BYTES + string.getBytes ( StandardCharsets.UTF_8 ).length;
+	}
+
+	/**
+	 * check that a part of a cache file lies within the buffer that holds it.
+	 * @param buffer    the buffer holding the cache file
+	 * @param start     the absolute position of the part
+	 * @param length    the length of the part
+	 * @throws IOException if it does not, the cache file is corrupt.
+	 */
+	public static void checkSection(ByteBuffer buffer, long start, long length) throws IOException {
+		if (start < 0 || length < 0 || start + length > buffer.limit ()) { throw new IOException ( CORRUPT_FILE_MSG ); }
+	}
+
+	/**
+	 * check the layout of the sections of a cache file: every section starts after the header and the sections
+	 * before it, and is long enough for what its counts say it holds, within the buffer.
+	 * @param buffer        the buffer holding the cache file
+	 * @param headerEnd     the absolute position of the end of the header
+	 * @param starts        the absolute position of every section, in file order
+	 * @param minLengths    the length every section takes at least
+	 * @throws IOException if they do not, the cache file is corrupt.
+	 */
+	public static void checkSections(ByteBuffer buffer, long headerEnd, long[] starts, long[] minLengths)
+			throws IOException {
+
+		long end = headerEnd;
+
+		for (int i = 0; i < starts.length; i++) {
+			if (starts[i] < end) { throw new IOException ( CORRUPT_FILE_MSG ); }
+
+			checkSection ( buffer, starts[i], minLengths[i] );
+			end = starts[i] + minLengths[i];
+		}
+	}
+
+	/**
+	 * check the counts of a cache file header.
+	 * @param counts    the counts
+	 * @throws IOException if one is negative, the cache file is corrupt.
+	 */
+	public static void checkCounts(int... counts) throws IOException {
+		for (int count : counts) {
+			if (count < 0) { throw new IOException ( CORRUPT_FILE_MSG ); }
+		}
+	}
+
+	/**
+	 * get the path of an entry the way the indexes keep it, relative to the corpus so an index stays valid when
+	 * the corpus is moved.
+	 * @param corpus    the corpus
+	 * @param entry     an entry of the corpus
+	 * @return the file path of the entry, relative to the corpus path.
+	 */
+	public static String relativePath(Corpus corpus, Entry entry) {
+		return Paths.get ( corpus.getPath () ).relativize ( Paths.get ( entry.getEntryFilePath () ) ).toString ();
+	}
+}
@@ -0,0 +1,77 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * The checksums a file can be fingerprinted with. Files are digested as a stream over memory mapped windows,
+ * so they are never copied to the heap nor decoded to Strings.
+ */
+public enum ChecksumType {
+
+    /** an MD5 digest, the default */
+    MD5 {
+        @Override
+        public String checksum(Path file) throws IOException {
+            MessageDigest digest;
+            try {
+                digest = MessageDigest.getInstance ( "MD5" );
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException ( "md5 error" );
+            }
+
+            forEachWindow ( file, digest::update );
+
+            StringBuilder hex = new StringBuilder ();
+            for (byte digestByte : digest.digest ()) { hex.append ( String.format ( "%02x", digestByte ) ); }
+
+            return hex.toString ();
+        }
+    },
+
+    /** a CRC32C checksum, hardware accelerated on most CPUs and much faster than MD5, but not cryptographic */
+    CRC32C {
+        @Override
+        public String checksum(Path file) throws IOException {
+            CRC32C crc = new CRC32C ();
+
+            forEachWindow ( file, crc::update );
+
+            return String.format ( "%08x", crc.getValue () );
+        }
+    };
+
+    // the most bytes of a file mapped at once
+    private static final long WINDOW_SIZE = 1L << 26;
+
+    /**
+     * Get the checksum of the content of a file
+     * @param file - the path of the file
+     * @return a hex String of the checksum
+     * @throws IOException if the file can not be read.
+     */
+    public abstract String checksum(Path file) throws IOException;
+
+    /*
+    map a file window by window and hand every window to a consumer, in order.
+     */
+    private static void forEachWindow(Path file, Consumer<MappedByteBuffer> consumer) throws IOException {
+
+        try (FileChannel channel = FileChannel.open ( file, StandardOpenOption.READ )) {
+
+            long size = channel.size ();
+
+            for (long position = 0; position < size; position += WINDOW_SIZE) {
+                consumer.accept ( channel.map ( FileChannel.MapMode.READ_ONLY, position,
+                                                Math.min ( WINDOW_SIZE, size - position ) ) );
+            }
+        }
+    }
+}